@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.piwatch;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.pivolve.piwatch.face.QuoteSource;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link QuoteSource} reading an asset in place through its file descriptor, so nothing but the
+ * requested bytes is loaded. The asset must be stored uncompressed in the APK, see
+ * {@code aaptOptions} in build.gradle.
+ */
+final class AssetQuoteSource implements QuoteSource {
+    private static final String TAG = "AssetQuoteSource";
+
+    private final AssetFileDescriptor mDescriptor;
+    private final FileInputStream mStream;
+    private final FileChannel mChannel;
+
+    private AssetQuoteSource(AssetFileDescriptor descriptor) throws IOException {
+        mDescriptor = descriptor;
+        mStream = descriptor.createInputStream();
+        mChannel = mStream.getChannel();
+    }
+
+    static AssetQuoteSource open(AssetManager assets, String name) throws IOException {
+        return new AssetQuoteSource(assets.openFd(name));
+    }
+
+    @Override
+    public long length() {
+        return mDescriptor.getLength();
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        long remaining = mDescriptor.getLength() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        ByteBuffer target = ByteBuffer.wrap(buffer, offset, (int) Math.min(length, remaining));
+        // Positional reads don't move the channel, so concurrent readers don't interfere.
+        return mChannel.read(target, mDescriptor.getStartOffset() + position);
+    }
+
+    @Override
+    public void close() {
+        try {
+            mStream.close();
+            mDescriptor.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close quote asset", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.piwatch;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+
+import com.pivolve.piwatch.face.DataPipeline;
+
+/**
+ * Battery level for the complications, read from the sticky {@code ACTION_BATTERY_CHANGED}
+ * broadcast without registering a receiver, so nothing runs between reads.
+ */
+final class BatterySource implements DataPipeline.Source {
+    private static final IntentFilter BATTERY_CHANGED =
+            new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+
+    private final Context mContext;
+
+    BatterySource(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    @Override
+    public String read() {
+        Intent battery = mContext.registerReceiver(null, BATTERY_CHANGED);
+        if (battery == null) {
+            return null;
+        }
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (level < 0 || scale <= 0) {
+            return null;
+        }
+        return level * 100 / scale + "%";
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.piwatch;
+
+import android.graphics.Canvas;
+
+import com.pivolve.piwatch.face.DrawTarget;
+import com.pivolve.piwatch.face.Ink;
+
+/**
+ * {@link DrawTarget} backed by an {@link android.graphics.Canvas}, drawing each {@link Ink}
+ * with the paint of the current {@link PaintSet}. Text in an ink that has a {@link GlyphAtlas}
+ * is copied from the atlas instead of being rendered.
+ */
+final class CanvasDrawTarget implements DrawTarget {
+    private PaintSet mPaintSet;
+    private Canvas mCanvas;
+
+    /** Switches to other paints, e.g. for another mode or theme. */
+    void setPaintSet(PaintSet paintSet) {
+        mPaintSet = paintSet;
+    }
+
+    PaintSet getPaintSet() {
+        return mPaintSet;
+    }
+
+    /** Sets the canvas the following operations draw into. */
+    void setCanvas(Canvas canvas) {
+        mCanvas = canvas;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int ink) {
+        mCanvas.drawRect(left, top, right, bottom, mPaintSet.getPaint(ink));
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        mCanvas.drawLine(startX, startY, stopX, stopY, mPaintSet.getPaint(ink));
+    }
+
+    @Override
+    public void drawLines(float[] pts, int ink) {
+        mCanvas.drawLines(pts, mPaintSet.getPaint(ink));
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int ink) {
+        mCanvas.drawPoints(pts, mPaintSet.getPaint(ink));
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int ink) {
+        mCanvas.drawCircle(cx, cy, radius, mPaintSet.getPaint(ink));
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+        GlyphAtlas atlas = mPaintSet.getGlyphAtlas(ink);
+        if (atlas == null || !atlas.drawText(mCanvas, text, index, count, x, y)) {
+            mCanvas.drawText(text, index, count, x, y, mPaintSet.getPaint(ink));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.piwatch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import com.pivolve.piwatch.face.DialGeometry;
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.FaceRenderer;
+
+/**
+ * Offscreen copy of the part of the interactive face that only changes with the surface size
+ * (background, hour marks and minute dots). Each frame blits the cached layer and only draws
+ * the hands and text on top. Ambient frames are drawn directly, see
+ * {@link com.pivolve.piwatch.face.AmbientRenderer}.
+ */
+final class DialLayerCache {
+    /** Draws the static part of the dial into the given canvas. */
+    interface Painter {
+        void drawStaticDial(Canvas canvas);
+    }
+
+    private final Painter mPainter;
+
+    private DialGeometry mGeometry;
+    private int mWidth;
+    private int mHeight;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private boolean mValid;
+
+    DialLayerCache(Painter painter) {
+        mPainter = painter;
+    }
+
+    /** Sets the surface the layer is drawn for, rebuilding it if it changed. */
+    void setSurface(DialGeometry geometry, int width, int height) {
+        if (geometry == mGeometry && width == mWidth && height == mHeight) {
+            return;
+        }
+        mGeometry = geometry;
+        mWidth = width;
+        mHeight = height;
+        invalidate();
+    }
+
+    /** Marks the layer for redrawing, e.g. after a paint it is drawn with has changed. */
+    void invalidate() {
+        mValid = false;
+    }
+
+    /** Returns the up-to-date layer, or null if no surface has been set. */
+    Bitmap getLayer() {
+        if (mGeometry == null || mWidth <= 0 || mHeight <= 0) {
+            return null;
+        }
+        if (!mValid) {
+            render();
+        }
+        return mBitmap;
+    }
+
+    /**
+     * Takes a layer made by {@link #render(FaceLayout, PaintSet)} for the given surface, if
+     * that is still the surface. Returns false otherwise, leaving the bitmap to the caller.
+     */
+    boolean setLayer(Bitmap bitmap, DialGeometry geometry, int width, int height) {
+        if (geometry != mGeometry || width != mWidth || height != mHeight) {
+            return false;
+        }
+        release();
+        mBitmap = bitmap;
+        mCanvas = new Canvas(bitmap);
+        mValid = true;
+        return true;
+    }
+
+    /** Frees the layer bitmap. It is recreated the next time it is needed. */
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+            mCanvas = null;
+        }
+        mValid = false;
+    }
+
+    private void render() {
+        if (mBitmap == null || mBitmap.getWidth() != mWidth || mBitmap.getHeight() != mHeight) {
+            release();
+            mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        }
+        mPainter.drawStaticDial(mCanvas);
+        mValid = true;
+    }
+
+    /**
+     * Renders the layer for a layout with the given paints into a new bitmap, on any thread,
+     * for {@link #setLayer}.
+     */
+    static Bitmap render(FaceLayout layout, PaintSet paints) {
+        Bitmap bitmap = Bitmap.createBitmap(layout.width, layout.height,
+                Bitmap.Config.ARGB_8888);
+        FaceRenderer renderer = new FaceRenderer();
+        renderer.setLayout(layout);
+        CanvasDrawTarget target = new CanvasDrawTarget();
+        target.setPaintSet(paints);
+        target.setCanvas(new Canvas(bitmap));
+        renderer.drawStaticDial(target);
+        return bitmap;
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.piwatch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.util.Log;
+import android.view.SurfaceHolder;
+
+import com.pivolve.piwatch.face.AmbientRenderer;
+import com.pivolve.piwatch.face.DrawTarget;
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.FaceRenderer;
+import com.pivolve.piwatch.face.FaceState;
+import com.pivolve.piwatch.face.ShapeBatch;
+import com.pivolve.piwatch.face.ShapeShader;
+import com.pivolve.piwatch.face.TimeState;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Draws the face with OpenGL ES 2.0 on the engine's surface instead of a software canvas. The
+ * static dial is a texture, uploaded when the dial layer changes, and the text is a second
+ * texture, drawn with the canvas paints and uploaded only when the text changes. Everything
+ * else (hands, marker, caps and the whole ambient face) goes through a {@link ShapeBatch}, one
+ * draw call per batch, with the edges worked out by {@link ShapeShader}.
+ *
+ * <p>The surface must not have been locked for a canvas before: the renderer has to be created
+ * as soon as the surface exists. If anything fails on the way, {@link #create} returns null and
+ * the engine keeps drawing with the canvas. All methods must be called on the main thread.
+ */
+final class GlFaceRenderer {
+    private static final String TAG = "GlFaceRenderer";
+
+    /**
+     * Quads one draw call can reach with 16-bit indices. Longer batches are drawn in several
+     * calls.
+     */
+    private static final int MAX_QUADS = 65536 / 4;
+    private static final int FLOAT_BYTES = 4;
+
+    /** Offset and float count of each shape attribute, in the order of the shader names. */
+    private static final int[] ATTR_OFFSETS = {
+            ShapeBatch.ATTR_POSITION, ShapeBatch.ATTR_SEGMENT, ShapeBatch.ATTR_SIZE,
+            ShapeBatch.ATTR_STYLE, ShapeBatch.ATTR_COLOR, ShapeBatch.ATTR_SMOOTH
+    };
+    private static final int[] ATTR_SIZES = {2, 4, 2, 4, 4, 1};
+
+    /** Draws a texture over the whole surface. */
+    private static final String LAYER_VERTEX_SOURCE = ""
+            + "attribute vec2 aPosition;\n"
+            + "attribute vec2 aTexCoord;\n"
+            + "varying vec2 vTexCoord;\n"
+            + "void main() {\n"
+            + "    vTexCoord = aTexCoord;\n"
+            + "    gl_Position = vec4(aPosition, 0.0, 1.0);\n"
+            + "}\n";
+    private static final String LAYER_FRAGMENT_SOURCE = ""
+            + "precision mediump float;\n"
+            + "uniform sampler2D uTexture;\n"
+            + "varying vec2 vTexCoord;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = texture2D(uTexture, vTexCoord);\n"
+            + "}\n";
+    /** Clip-space position and texture coordinate of each corner, as a triangle strip. */
+    private static final float[] LAYER_QUAD = {
+            -1, 1, 0, 0,
+            -1, -1, 0, 1,
+            1, 1, 1, 0,
+            1, -1, 1, 1,
+    };
+
+    private final ShapeBatch mBatch = new ShapeBatch();
+    private final TextLayerTarget mTextLayerTarget = new TextLayerTarget();
+
+    private EGLDisplay mDisplay = EGL14.EGL_NO_DISPLAY;
+    private EGLContext mContext = EGL14.EGL_NO_CONTEXT;
+    private EGLSurface mSurface = EGL14.EGL_NO_SURFACE;
+
+    private int mShapeProgram;
+    private int mSurfaceUniform;
+    private final int[] mShapeAttributes = new int[6];
+    private int mLayerProgram;
+    private int mLayerPosition;
+    private int mLayerTexCoord;
+    private final int[] mTextures = new int[2];
+
+    private FloatBuffer mVertices;
+    private ShortBuffer mIndices;
+    private FloatBuffer mLayerQuad;
+
+    /** What the textures and batch styles were last made for. */
+    private FaceLayout mLayout;
+    private PaintSet mPaints;
+    private Bitmap mDialLayer;
+    private boolean mDialUploaded;
+    private Bitmap mTextLayer;
+    private Canvas mTextCanvas;
+    private boolean mTextValid;
+    private Object mTextQuote;
+    private Object mTextData;
+    private int mTextDay;
+    private int mTextHour;
+    private int mTextMinute;
+
+    private GlFaceRenderer() {
+    }
+
+    /** Sets up GL on the holder's surface, or returns null if that isn't possible. */
+    static GlFaceRenderer create(SurfaceHolder holder) {
+        GlFaceRenderer renderer = new GlFaceRenderer();
+        try {
+            renderer.init(holder);
+            return renderer;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "GL backend unavailable, drawing with the canvas", e);
+            renderer.release();
+            return null;
+        }
+    }
+
+    private void init(SurfaceHolder holder) {
+        mDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (mDisplay == EGL14.EGL_NO_DISPLAY
+                || !EGL14.eglInitialize(mDisplay, version, 0, version, 1)) {
+            throw new IllegalStateException("eglInitialize failed");
+        }
+        int[] configAttributes = {
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT,
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] configCount = new int[1];
+        if (!EGL14.eglChooseConfig(mDisplay, configAttributes, 0, configs, 0, 1, configCount, 0)
+                || configCount[0] == 0) {
+            throw new IllegalStateException("No EGL config for ES 2.0");
+        }
+        mContext = EGL14.eglCreateContext(mDisplay, configs[0], EGL14.EGL_NO_CONTEXT,
+                new int[]{EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE}, 0);
+        if (mContext == EGL14.EGL_NO_CONTEXT) {
+            throw new IllegalStateException("eglCreateContext failed");
+        }
+        mSurface = EGL14.eglCreateWindowSurface(mDisplay, configs[0], holder.getSurface(),
+                new int[]{EGL14.EGL_NONE}, 0);
+        if (mSurface == EGL14.EGL_NO_SURFACE) {
+            throw new IllegalStateException("eglCreateWindowSurface failed");
+        }
+        if (!EGL14.eglMakeCurrent(mDisplay, mSurface, mSurface, mContext)) {
+            throw new IllegalStateException("eglMakeCurrent failed");
+        }
+
+        mShapeProgram = link(ShapeShader.VERTEX_SOURCE, ShapeShader.FRAGMENT_SOURCE);
+        mSurfaceUniform = GLES20.glGetUniformLocation(mShapeProgram,
+                ShapeShader.UNIFORM_SURFACE);
+        String[] names = {
+                ShapeShader.ATTR_POSITION, ShapeShader.ATTR_SEGMENT, ShapeShader.ATTR_SIZE,
+                ShapeShader.ATTR_STYLE, ShapeShader.ATTR_COLOR, ShapeShader.ATTR_SMOOTH
+        };
+        for (int i = 0; i < names.length; i++) {
+            mShapeAttributes[i] = GLES20.glGetAttribLocation(mShapeProgram, names[i]);
+        }
+        mLayerProgram = link(LAYER_VERTEX_SOURCE, LAYER_FRAGMENT_SOURCE);
+        mLayerPosition = GLES20.glGetAttribLocation(mLayerProgram, "aPosition");
+        mLayerTexCoord = GLES20.glGetAttribLocation(mLayerProgram, "aTexCoord");
+
+        GLES20.glGenTextures(mTextures.length, mTextures, 0);
+        for (int texture : mTextures) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+                    GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER,
+                    GLES20.GL_NEAREST);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S,
+                    GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T,
+                    GLES20.GL_CLAMP_TO_EDGE);
+        }
+
+        mLayerQuad = allocateFloats(LAYER_QUAD.length);
+        mLayerQuad.put(LAYER_QUAD).position(0);
+        short[] indices = new short[6 * MAX_QUADS];
+        ShapeBatch.fillIndices(indices);
+        mIndices = ByteBuffer.allocateDirect(indices.length * 2)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        mIndices.put(indices).position(0);
+        mVertices = allocateFloats(64 * ShapeBatch.QUAD_FLOATS);
+
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+        checkError("init");
+    }
+
+    /**
+     * Draws an interactive frame: the dial layer, the moving parts as quads, and the text from
+     * its layer, which is drawn with {@code textTarget} when the text has changed.
+     *
+     * @param dialLayer the cached static dial, or null to draw it with the quads
+     */
+    void drawInteractive(FaceRenderer renderer, FaceState state, Bitmap dialLayer,
+            CanvasDrawTarget textTarget) {
+        if (!makeCurrent()) {
+            return;
+        }
+        FaceLayout layout = renderer.getLayout();
+        PaintSet paints = textTarget.getPaintSet();
+        setUp(layout, paints);
+        if (dialLayer != mDialLayer || !mDialUploaded) {
+            mDialLayer = dialLayer;
+            mDialUploaded = dialLayer != null;
+            if (dialLayer != null) {
+                upload(mTextures[0], dialLayer);
+            }
+        }
+
+        TimeState time = state.time;
+        boolean textChanged = !mTextValid || state.quote != mTextQuote
+                || state.data != mTextData || time.getMonthDay() != mTextDay
+                || time.getHour() != mTextHour || time.getMinute() != mTextMinute;
+        mBatch.reset();
+        if (dialLayer == null) {
+            renderer.drawStaticDial(mBatch);
+        }
+        if (textChanged) {
+            mTextLayerTarget.begin(layout, textTarget);
+            renderer.drawMovingParts(mBatch, state);
+            mTextLayerTarget.end();
+            mTextValid = true;
+            mTextQuote = state.quote;
+            mTextData = state.data;
+            mTextDay = time.getMonthDay();
+            mTextHour = time.getHour();
+            mTextMinute = time.getMinute();
+        } else {
+            renderer.drawMovingParts(mBatch, state);
+        }
+
+        GLES20.glClearColor(0, 0, 0, 1);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        if (dialLayer != null) {
+            drawLayer(mTextures[0]);
+        }
+        drawBatches(layout, mTextures[1]);
+        swap();
+    }
+
+    /**
+     * Draws an ambient frame. The text layer is only touched if the frame has text, which
+     * ambient frames currently don't.
+     */
+    void drawAmbient(AmbientRenderer renderer, FaceLayout layout, TimeState time,
+            CanvasDrawTarget textTarget) {
+        if (!makeCurrent()) {
+            return;
+        }
+        setUp(layout, textTarget.getPaintSet());
+        mBatch.reset();
+        mTextLayerTarget.begin(layout, textTarget);
+        renderer.draw(mBatch, time);
+        if (mTextLayerTarget.end()) {
+            // The layer now holds ambient text, which the next interactive frame can't reuse.
+            mTextValid = false;
+        }
+
+        GLES20.glClearColor(0, 0, 0, 1);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        drawBatches(layout, mTextures[1]);
+        swap();
+    }
+
+    /** Uploads the dial layer again on the next interactive frame, after it was redrawn. */
+    void invalidateDial() {
+        mDialUploaded = false;
+    }
+
+    /**
+     * Frees this renderer's surface, context and GL objects. The renderer can't be used
+     * afterwards. The display is shared by every engine in the process, so it stays
+     * initialized.
+     */
+    void release() {
+        releaseTextLayer();
+        if (mDisplay != EGL14.EGL_NO_DISPLAY) {
+            if (makeCurrent()) {
+                GLES20.glDeleteTextures(mTextures.length, mTextures, 0);
+                GLES20.glDeleteProgram(mShapeProgram);
+                GLES20.glDeleteProgram(mLayerProgram);
+                EGL14.eglMakeCurrent(mDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE,
+                        EGL14.EGL_NO_CONTEXT);
+            }
+            if (mSurface != EGL14.EGL_NO_SURFACE) {
+                EGL14.eglDestroySurface(mDisplay, mSurface);
+            }
+            if (mContext != EGL14.EGL_NO_CONTEXT) {
+                EGL14.eglDestroyContext(mDisplay, mContext);
+            }
+        }
+        mDisplay = EGL14.EGL_NO_DISPLAY;
+        mContext = EGL14.EGL_NO_CONTEXT;
+        mSurface = EGL14.EGL_NO_SURFACE;
+    }
+
+    /**
+     * Makes this renderer's context and surface current. Another engine in the same process,
+     * e.g. the preview next to the live face, may have made its own current since.
+     */
+    private boolean makeCurrent() {
+        if (mContext == EGL14.EGL_NO_CONTEXT || mSurface == EGL14.EGL_NO_SURFACE) {
+            return false;
+        }
+        if (!EGL14.eglMakeCurrent(mDisplay, mSurface, mSurface, mContext)) {
+            Log.w(TAG, "eglMakeCurrent failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+            return false;
+        }
+        return true;
+    }
+
+    private void releaseTextLayer() {
+        if (mTextLayer != null) {
+            mTextLayer.recycle();
+            mTextLayer = null;
+            mTextCanvas = null;
+        }
+    }
+
+    /** Resolves the batch styles and the viewport when the paints or layout changed. */
+    private void setUp(FaceLayout layout, PaintSet paints) {
+        if (layout != mLayout) {
+            mLayout = layout;
+            GLES20.glViewport(0, 0, layout.width, layout.height);
+            mTextValid = false;
+        }
+        if (paints != mPaints) {
+            mPaints = paints;
+            mBatch.setStyles(paints.getStyles(), layout);
+            mTextValid = false;
+        }
+    }
+
+    private void drawBatches(FaceLayout layout, int textTexture) {
+        ShapeBatch batch = mBatch;
+        int floats = batch.getQuadCount() * ShapeBatch.QUAD_FLOATS;
+        if (mVertices.capacity() < floats) {
+            mVertices = allocateFloats(Math.max(floats, 2 * mVertices.capacity()));
+        }
+        mVertices.position(0);
+        mVertices.put(batch.getVertices(), 0, floats);
+
+        for (int i = 0; i < batch.getBatchCount(); i++) {
+            if (batch.getBatchType(i) == ShapeBatch.BATCH_TEXT) {
+                if (textTexture != 0) {
+                    drawLayer(textTexture);
+                }
+                continue;
+            }
+            GLES20.glUseProgram(mShapeProgram);
+            GLES20.glUniform2f(mSurfaceUniform, layout.width, layout.height);
+            GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+            int end = batch.getBatchStart(i) + batch.getBatchQuadCount(i);
+            for (int first = batch.getBatchStart(i); first < end; first += MAX_QUADS) {
+                drawQuads(first, Math.min(end - first, MAX_QUADS));
+            }
+            for (int location : mShapeAttributes) {
+                GLES20.glDisableVertexAttribArray(location);
+            }
+        }
+    }
+
+    /** Draws up to {@link #MAX_QUADS} quads with the shape program in use. */
+    private void drawQuads(int first, int count) {
+        for (int a = 0; a < ATTR_OFFSETS.length; a++) {
+            int location = mShapeAttributes[a];
+            mVertices.position(first * ShapeBatch.QUAD_FLOATS + ATTR_OFFSETS[a]);
+            GLES20.glVertexAttribPointer(location, ATTR_SIZES[a], GLES20.GL_FLOAT, false,
+                    ShapeBatch.VERTEX_FLOATS * FLOAT_BYTES, mVertices);
+            GLES20.glEnableVertexAttribArray(location);
+        }
+        mIndices.position(0);
+        GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6 * count, GLES20.GL_UNSIGNED_SHORT,
+                mIndices);
+    }
+
+    /** Draws a texture over the whole surface. Bitmaps are uploaded premultiplied. */
+    private void drawLayer(int texture) {
+        GLES20.glUseProgram(mLayerProgram);
+        GLES20.glBlendFunc(GLES20.GL_ONE, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        mLayerQuad.position(0);
+        GLES20.glVertexAttribPointer(mLayerPosition, 2, GLES20.GL_FLOAT, false,
+                4 * FLOAT_BYTES, mLayerQuad);
+        GLES20.glEnableVertexAttribArray(mLayerPosition);
+        mLayerQuad.position(2);
+        GLES20.glVertexAttribPointer(mLayerTexCoord, 2, GLES20.GL_FLOAT, false,
+                4 * FLOAT_BYTES, mLayerQuad);
+        GLES20.glEnableVertexAttribArray(mLayerTexCoord);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(mLayerPosition);
+        GLES20.glDisableVertexAttribArray(mLayerTexCoord);
+    }
+
+    private static void upload(int texture, Bitmap bitmap) {
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
+    }
+
+    private void swap() {
+        if (!EGL14.eglSwapBuffers(mDisplay, mSurface)) {
+            Log.w(TAG, "eglSwapBuffers failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+    }
+
+    private static FloatBuffer allocateFloats(int count) {
+        return ByteBuffer.allocateDirect(count * FLOAT_BYTES).order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    private static int link(String vertexSource, String fragmentSource) {
+        int vertexShader = compile(GLES20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader;
+        try {
+            fragmentShader = compile(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+        } catch (IllegalStateException e) {
+            GLES20.glDeleteShader(vertexShader);
+            throw e;
+        }
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        // Attached shaders are only flagged for deletion, and go with the program.
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new IllegalStateException("Program failed to link: " + log);
+        }
+        return program;
+    }
+
+    private static int compile(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("Shader failed to compile: " + log);
+        }
+        return shader;
+    }
+
+    private static void checkError(String operation) {
+        int error = GLES20.glGetError();
+        if (error != GLES20.GL_NO_ERROR) {
+            throw new IllegalStateException(operation + ": GL error 0x"
+                    + Integer.toHexString(error));
+        }
+    }
+
+    /**
+     * Takes the text the batch passes on and draws it into the text layer. The layer is only
+     * cleared, drawn and uploaded once text actually arrives.
+     */
+    private final class TextLayerTarget implements DrawTarget {
+        private FaceLayout mFrameLayout;
+        private CanvasDrawTarget mTarget;
+        private boolean mDrawn;
+
+        /** Routes the text of the following draws into the layer. */
+        void begin(FaceLayout layout, CanvasDrawTarget target) {
+            mFrameLayout = layout;
+            mTarget = target;
+            mDrawn = false;
+            mBatch.setTextTarget(this);
+        }
+
+        /** Uploads the layer if any text was drawn into it, and returns whether it was. */
+        boolean end() {
+            mBatch.setTextTarget(null);
+            if (mDrawn) {
+                mTarget.setCanvas(null);
+                upload(mTextures[1], mTextLayer);
+            }
+            mTarget = null;
+            return mDrawn;
+        }
+
+        @Override
+        public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+            if (!mDrawn) {
+                FaceLayout layout = mFrameLayout;
+                if (mTextLayer == null || mTextLayer.getWidth() != layout.width
+                        || mTextLayer.getHeight() != layout.height) {
+                    releaseTextLayer();
+                    mTextLayer = Bitmap.createBitmap(layout.width, layout.height,
+                            Bitmap.Config.ARGB_8888);
+                    mTextCanvas = new Canvas(mTextLayer);
+                }
+                mTextLayer.eraseColor(0);
+                mTarget.setCanvas(mTextCanvas);
+                mDrawn = true;
+            }
+            mTarget.drawText(text, index, count, x, y, ink);
+        }
+
+        // The batch only passes text on.
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, int ink) {
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        }
+
+        @Override
+        public void drawLines(float[] pts, int ink) {
+        }
+
+        @Override
+        public void drawPoints(float[] pts, int ink) {
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, int ink) {
+        }
+    }
+}
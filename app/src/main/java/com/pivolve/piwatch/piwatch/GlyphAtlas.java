@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.piwatch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * The glyphs of the digital readouts ({@code 0-9}, {@code :} and {@code -}) pre-rendered with
+ * one paint into a single bitmap, together with their advances. Drawing a readout is then a
+ * row of bitmap copies instead of shaping and rasterizing text every frame.
+ *
+ * <p>The atlas remembers the paint settings it was rendered with and renders itself again if
+ * they change, so it can be kept across theme or mode changes.
+ */
+final class GlyphAtlas {
+    private static final String GLYPHS = "0123456789:-";
+    /** Space around each glyph, for anti-aliasing and fake bold spilling over the advance. */
+    private static final int PADDING = 2;
+
+    private final Paint mPaint;
+    private final float[] mAdvances = new float[GLYPHS.length()];
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    private Bitmap mBitmap;
+    private int mCellWidth;
+    private int mCellHeight;
+    private int mBaseline;
+
+    /** Settings of {@link #mPaint} the bitmap was rendered with. */
+    private float mTextSize;
+    private int mColor;
+    private int mFlags;
+    private Typeface mTypeface;
+
+    GlyphAtlas(Paint paint) {
+        mPaint = paint;
+    }
+
+    /**
+     * Draws {@code count} characters centered on {@code x}, as {@code Canvas.drawText} with a
+     * centered paint would. Returns false without drawing if the text has a character that is
+     * not in the atlas.
+     */
+    boolean drawText(Canvas canvas, char[] text, int index, int count, float x, float y) {
+        float width = 0;
+        for (int i = index; i < index + count; i++) {
+            int glyph = GLYPHS.indexOf(text[i]);
+            if (glyph < 0) {
+                return false;
+            }
+            width += mAdvances[glyph];
+        }
+        if (!isValid()) {
+            render();
+            return drawText(canvas, text, index, count, x, y);
+        }
+
+        float penX = x - width / 2;
+        int top = Math.round(y) - mBaseline;
+        for (int i = index; i < index + count; i++) {
+            int glyph = GLYPHS.indexOf(text[i]);
+            int left = Math.round(penX) - PADDING;
+            mSrc.set(glyph * mCellWidth, 0, (glyph + 1) * mCellWidth, mCellHeight);
+            mDst.set(left, top, left + mCellWidth, top + mCellHeight);
+            canvas.drawBitmap(mBitmap, mSrc, mDst, null);
+            penX += mAdvances[glyph];
+        }
+        return true;
+    }
+
+    /** Renders the atlas now if the next draw would have to. */
+    void prepare() {
+        if (!isValid()) {
+            render();
+        }
+    }
+
+    void release() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+
+    private boolean isValid() {
+        return mBitmap != null
+                && mTextSize == mPaint.getTextSize()
+                && mColor == mPaint.getColor()
+                && mFlags == mPaint.getFlags()
+                && mTypeface == mPaint.getTypeface();
+    }
+
+    private void render() {
+        release();
+        mTextSize = mPaint.getTextSize();
+        mColor = mPaint.getColor();
+        mFlags = mPaint.getFlags();
+        mTypeface = mPaint.getTypeface();
+
+        Paint paint = new Paint(mPaint);
+        paint.setTextAlign(Paint.Align.LEFT);
+        paint.getTextWidths(GLYPHS, mAdvances);
+        float maxAdvance = 0;
+        for (float advance : mAdvances) {
+            maxAdvance = Math.max(maxAdvance, advance);
+        }
+        Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        mCellWidth = (int) Math.ceil(maxAdvance) + 2 * PADDING;
+        mCellHeight = metrics.bottom - metrics.top + 2 * PADDING;
+        mBaseline = PADDING - metrics.top;
+
+        mBitmap = Bitmap.createBitmap(mCellWidth * GLYPHS.length(), mCellHeight,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(mBitmap);
+        for (int i = 0; i < GLYPHS.length(); i++) {
+            canvas.drawText(GLYPHS, i, i + 1, i * mCellWidth + PADDING, mBaseline, paint);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.piwatch;
+
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.Ink;
+import com.pivolve.piwatch.face.InkStyle;
+
+/**
+ * The paints for one theme in one display mode on one surface, one per {@link Ink}, resolved
+ * from {@link InkStyle}s once and never modified afterwards. Text inks listed when the set is
+ * created also get a {@link GlyphAtlas}, rendered the first time it is drawn from.
+ */
+final class PaintSet {
+    private final InkStyle[] mStyles;
+    private final Paint[] mPaints = new Paint[Ink.COUNT];
+    private final GlyphAtlas[] mGlyphAtlases = new GlyphAtlas[Ink.COUNT];
+
+    /**
+     * @param layout converts stroke widths and text sizes to pixels
+     * @param glyphAtlasInks inks whose text only uses the characters of a {@link GlyphAtlas}
+     */
+    PaintSet(InkStyle[] styles, FaceLayout layout, Typeface typeface, int... glyphAtlasInks) {
+        mStyles = styles;
+        for (int ink = 0; ink < Ink.COUNT; ink++) {
+            if (styles[ink] != null) {
+                mPaints[ink] = createPaint(styles[ink], layout, typeface);
+            }
+        }
+        for (int ink : glyphAtlasInks) {
+            if (mPaints[ink] != null) {
+                mGlyphAtlases[ink] = new GlyphAtlas(mPaints[ink]);
+            }
+        }
+    }
+
+    private static Paint createPaint(InkStyle style, FaceLayout layout, Typeface typeface) {
+        Paint paint = new Paint();
+        paint.setColor(style.getColor());
+        paint.setAntiAlias(style.isAntiAlias());
+        paint.setStrokeWidth(layout.toPixels(style.getStrokeWidth()));
+        switch (style.getCap()) {
+            case InkStyle.CAP_ROUND:
+                paint.setStrokeCap(Paint.Cap.ROUND);
+                break;
+            case InkStyle.CAP_SQUARE:
+                paint.setStrokeCap(Paint.Cap.SQUARE);
+                break;
+            default:
+                paint.setStrokeCap(Paint.Cap.BUTT);
+                break;
+        }
+        if (style.isOutline()) {
+            paint.setStyle(Paint.Style.STROKE);
+        }
+        if (style.isDashed()) {
+            paint.setPathEffect(new DashPathEffect(new float[]{
+                    style.getDashOn(), style.getDashOff()}, 0));
+        }
+        if (style.getTextSize() > 0) {
+            paint.setTextSize(layout.getTextSize(style));
+            paint.setTypeface(typeface);
+            paint.setTextAlign(Paint.Align.CENTER);
+            paint.setFakeBoldText(style.isFakeBold());
+        }
+        return paint;
+    }
+
+    /** Returns the paint for an ink, or null if this mode doesn't draw it. Must not be modified. */
+    Paint getPaint(int ink) {
+        return mPaints[ink];
+    }
+
+    /** The styles the paints were made from, for backends that don't use paints. */
+    InkStyle[] getStyles() {
+        return mStyles;
+    }
+
+    /** Returns the glyph atlas for an ink, or null if it has none. */
+    GlyphAtlas getGlyphAtlas(int ink) {
+        return mGlyphAtlases[ink];
+    }
+
+    /** Renders the glyph atlases ahead of the first draw, e.g. on a background thread. */
+    void prepare() {
+        for (GlyphAtlas atlas : mGlyphAtlases) {
+            if (atlas != null) {
+                atlas.prepare();
+            }
+        }
+    }
+
+    /** Frees the glyph atlas bitmaps. They are rendered again if drawn from. */
+    void release() {
+        for (GlyphAtlas atlas : mGlyphAtlases) {
+            if (atlas != null) {
+                atlas.release();
+            }
+        }
+    }
+}
@@ -20,86 +20,219 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.res.AssetManager;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.Typeface;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.format.Time;
+import android.util.Log;
 import android.view.SurfaceHolder;
-
+import android.view.WindowInsets;
+
+import com.pivolve.piwatch.face.AmbientRenderer;
+import com.pivolve.piwatch.face.Clock;
+import com.pivolve.piwatch.face.DamageTracker;
+import com.pivolve.piwatch.face.DataPipeline;
+import com.pivolve.piwatch.face.DataSnapshot;
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.FaceRenderer;
+import com.pivolve.piwatch.face.FaceState;
+import com.pivolve.piwatch.face.FrameRatePolicy;
+import com.pivolve.piwatch.face.FrameStats;
+import com.pivolve.piwatch.face.Ink;
+import com.pivolve.piwatch.face.QuoteLibrary;
+import com.pivolve.piwatch.face.QuoteProvider;
+import com.pivolve.piwatch.face.QuoteRotationPolicy;
+import com.pivolve.piwatch.face.TextMeasurer;
+import com.pivolve.piwatch.face.Theme;
+import com.pivolve.piwatch.face.TickScheduler;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Analog watch face with a ticking second hand. In ambient mode, the second hand isn't shown. On
- * devices with low-bit ambient mode, the hands are drawn without anti-aliasing in ambient mode.
+ * Analog watch face with a ticking second hand. In ambient mode, the second hand isn't shown and
+ * the hands are drawn as outlines with a separate set of paints. On devices with low-bit ambient
+ * mode, those paints are white and aliased; on devices that need burn-in protection, the ambient
+ * face shifts by a few pixels every minute.
  */
 public class PiWatchFace extends CanvasWatchFaceService {
+    private static final String TAG = "PiWatchFace";
+
+    /**
+     * Debug broadcast that logs the frame stats. Only accepted from senders holding the DUMP
+     * permission, e.g. {@code adb shell am broadcast -a <action>}. An optional boolean
+     * {@link #EXTRA_ENABLED} turns collection on or off, and {@link #EXTRA_CLEAR} discards the
+     * samples collected so far.
+     */
+    static final String ACTION_DUMP_FRAME_STATS =
+            "com.pivolve.piwatch.piwatch.action.DUMP_FRAME_STATS";
+    static final String EXTRA_ENABLED = "enabled";
+    static final String EXTRA_CLEAR = "clear";
+
+    /**
+     * Debug broadcast that switches to the theme named by {@link #EXTRA_THEME}, with the same
+     * permission requirement as {@link #ACTION_DUMP_FRAME_STATS}.
+     */
+    static final String ACTION_SET_THEME = "com.pivolve.piwatch.piwatch.action.SET_THEME";
+    static final String EXTRA_THEME = "theme";
+
     /**
      * Update rate in milliseconds for interactive mode. We update once a second to advance the
      * second hand.
      */
     private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
 
+    /**
+     * Share of each second the sweeping second hand may spend drawing. The frame rate is lowered
+     * until the measured frame cost fits.
+     */
+    private static final float SWEEP_POWER_BUDGET = 0.1f;
+
+    private static final String TYPEFACE_ASSET = "Crysta.ttf";
+    /** Asset with one quote per line, UTF-8. */
+    private static final String QUOTES_ASSET = "quotes.txt";
+    private static final int QUOTE_MAX_LINES = 3;
+    /** Reads and lays out quotes, one at a time so the file is never read twice at once. */
+    private static final Executor QUOTE_LOADER = AsyncTask.SERIAL_EXECUTOR;
+
+    /**
+     * How often the complication sources are checked, and how often each is read. New data is
+     * shown with the next frame, so reading more often than the face redraws gains nothing.
+     */
+    private static final long DATA_POLL_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long DATA_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Runs the complication sources at background priority. */
+    private static final ThreadFactory DATA_THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "PiWatchData");
+        }
+    };
+
+    /** Uptime matches the time base of {@link Handler#sendMessageAtTime}. */
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Frame timing for all engines. Printed by
+     * {@code adb shell dumpsys activity service com.pivolve.piwatch.piwatch/.PiWatchFace}.
+     */
+    final FrameStats mFrameStats = new FrameStats(BuildConfig.DEBUG);
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine {
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        mFrameStats.dump(writer, "", SystemClock.elapsedRealtime());
+    }
+
+    private class Engine extends CanvasWatchFaceService.Engine
+            implements DialLayerCache.Painter, SweepScheduler.Callback, TickScheduler.Host {
         static final int MSG_UPDATE_TIME = 0;
+        static final int MSG_DRAW_GL = 1;
 
-        Paint mBackgroundPaint;
-        Paint mDigitalRedPaint;
-        Paint mBlackPaint;
-        Paint mHandPaint;
-        Paint mMinuteHandPaint;
-        Paint mSecHandPaint;
-        Paint mDigitalPaint;
-        Paint mDotPaint;
-        Paint mDot1Paint;
-        Paint mDot2Paint;
-        Paint mDot3Paint;
-        Paint mDot2aPaint;
-        Paint mDot3aPaint;
-        Paint mHighLightPaint;
-        Paint mHighLight2Paint;
-
-        Paint mQuotePaint;
         boolean mAmbient;
-        Time mTime;
         /**
-         * Handler to update the time once a second in interactive mode.
+         * Handler to update the time once a second in interactive mode, and to draw the frames
+         * requested by {@link #invalidate()} on the GL backend. The alarms are set by
+         * {@link #mTickScheduler}.
          */
         final Handler mUpdateTimeHandler = new Handler() {
             @Override
             public void handleMessage(Message message) {
                 switch (message.what) {
                     case MSG_UPDATE_TIME:
-                        invalidate();
-                        if (shouldTimerBeRunning()) {
-                            long timeMs = System.currentTimeMillis();
-                            long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                                    - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                            mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
-                        }
+                        mTickScheduler.onAlarm();
+                        break;
+                    case MSG_DRAW_GL:
+                        drawGlFrame();
                         break;
                 }
             }
         };
 
+        final TickScheduler mTickScheduler =
+                new TickScheduler(SYSTEM_CLOCK, this, INTERACTIVE_UPDATE_RATE_MS);
+
+        final BroadcastReceiver mFrameStatsReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (intent.hasExtra(EXTRA_ENABLED)) {
+                    mFrameStats.setEnabled(intent.getBooleanExtra(EXTRA_ENABLED, false));
+                }
+                StringWriter dump = new StringWriter();
+                PrintWriter writer = new PrintWriter(dump);
+                mFrameStats.dump(writer, "", SystemClock.elapsedRealtime());
+                writer.flush();
+                Log.i(TAG, dump.toString());
+                if (intent.getBooleanExtra(EXTRA_CLEAR, false)) {
+                    mFrameStats.clear();
+                }
+            }
+        };
+
+        final BroadcastReceiver mThemeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                String name = intent.getStringExtra(EXTRA_THEME);
+                Theme theme = Theme.find(name);
+                if (theme == null) {
+                    Log.w(TAG, "Unknown theme: " + name);
+                    return;
+                }
+                mStyles.setTheme(theme);
+                invalidate();
+            }
+        };
+
         final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mTime.clear(intent.getStringExtra("time-zone"));
-                mTime.setToNow();
+                if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                    mDataPipeline.setTimeZone(
+                            TimeZone.getTimeZone(intent.getStringExtra("time-zone")));
+                }
+                mTickScheduler.onWallClockChanged();
             }
         };
         boolean mRegisteredTimeZoneReceiver = false;
@@ -110,12 +243,106 @@ public class PiWatchFace extends CanvasWatchFaceService {
          */
         boolean mLowBitAmbient;
 
-        String[] quotes = new String[8];
+        /** Paints for every theme and mode. */
+        StyleRegistry mStyles;
+        /**
+         * The interactive paints the dial layer, quote layout and damage padding were last set
+         * up for, see {@link #updatePaintSet()}.
+         */
+        PaintSet mInteractivePaints;
+
+        /**
+         * Null until loaded, or if the quotes asset couldn't be opened. Quotes are read and laid
+         * out on {@link #QUOTE_LOADER} and handed back through {@link #mMainExecutor}.
+         */
+        QuoteLibrary mQuoteLibrary;
+        QuoteProvider mQuotes;
+        final Executor mMainExecutor = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mUpdateTimeHandler.post(runnable);
+            }
+        };
+        final QuoteProvider.Listener mQuoteListener = new QuoteProvider.Listener() {
+            @Override
+            public void onQuoteChanged() {
+                if (!mDestroyed) {
+                    mDamageTracker.invalidate();
+                    invalidate();
+                }
+            }
+        };
+
+        /**
+         * Complication data and time zone changes, collected on {@link #mDataExecutor} and
+         * picked up by {@link #prepareFrame} before each frame.
+         */
+        ScheduledExecutorService mDataExecutor;
+        DataPipeline mDataPipeline;
+
+        /**
+         * Startup state. The first frames are drawn with minimal paints and no dial layer while
+         * {@link #loadResources} runs; {@link #onResourcesLoaded} swaps the rest in.
+         */
+        long mCreateNanos;
+        FrameStats.Startup mStartup;
+        boolean mResourcesLoaded;
+        boolean mFullFrameDrawn;
+        boolean mDestroyed;
+
+        int mChinHeight;
+        float mDensity;
+        /** Positions and sizes for the current surface, or null before the first one. */
+        FaceLayout mLayout;
+
+        /**
+         * Whether the second hand sweeps. When it does, frames come from
+         * {@link #mSweepScheduler} at the rate picked by {@link #mFrameRatePolicy}, and from
+         * {@link #mTickScheduler} only when that rate drops to one per second.
+         */
+        boolean mSweepSecondHand;
+        final FrameRatePolicy mFrameRatePolicy = new FrameRatePolicy(SWEEP_POWER_BUDGET);
+        final SweepScheduler mSweepScheduler = new SweepScheduler(this);
+        /**
+         * The vsync the sweep frame being drawn was scheduled for and the one it is drawn on,
+         * or 0 outside {@link #onSweepFrame}.
+         */
+        long mSweepTargetNanos;
+        long mSweepFrameTimeNanos;
+
+        final FaceRenderer mRenderer = new FaceRenderer();
+        final FaceState mFaceState = new FaceState();
+        final CanvasDrawTarget mDrawTarget = new CanvasDrawTarget();
+
+        final AmbientRenderer mAmbientRenderer = new AmbientRenderer();
+
+        /** Pre-rendered background, hour marks and minute dots. */
+        final DialLayerCache mDialLayers = new DialLayerCache(this);
+
+        /**
+         * Whether ticks within a minute only repaint the area around the second hand, see
+         * {@link #drawDamagedRegion()}.
+         */
+        boolean mPartialRedraw;
+        final DamageTracker mDamageTracker = new DamageTracker();
+        /** Margin around the second hand that its stroke and anti-aliasing can reach. */
+        float mDamagePadding;
+        final int[] mDamage = new int[4];
+        final Rect mDirtyRect = new Rect();
+
+        /**
+         * Whether to draw with OpenGL ES instead of the canvas. Cleared if GL can't be set up
+         * on the surface, and the canvas is used from then on.
+         */
+        boolean mUseGl;
+        /** The GL backend while there is a surface for it, otherwise null. */
+        GlFaceRenderer mGl;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
+            mCreateNanos = System.nanoTime();
+            mStartup = mFrameStats.beginStartup();
             super.onCreate(holder);
-            Typeface myTypeface = Typeface.createFromAsset(getAssets(), "Crysta.ttf");
             setWatchFaceStyle(new WatchFaceStyle.Builder(PiWatchFace.this)
                     .setCardPeekMode(WatchFaceStyle.PEEK_MODE_SHORT)
                     .setBackgroundVisibility(WatchFaceStyle.BACKGROUND_VISIBILITY_INTERRUPTIVE)
@@ -123,116 +350,130 @@ public class PiWatchFace extends CanvasWatchFaceService {
                     .build());
 
             Resources resources = PiWatchFace.this.getResources();
+            mSweepSecondHand = resources.getBoolean(R.bool.sweep_second_hand);
+            mPartialRedraw = resources.getBoolean(R.bool.partial_redraw);
+            mUseGl = resources.getBoolean(R.bool.gl_backend);
+
+            mDensity = resources.getDisplayMetrics().density;
+            Theme theme = Theme.find(resources.getString(R.string.theme));
+            mStyles = new StyleRegistry(theme != null ? theme : Theme.CLASSIC);
+
+            PiWatchFace.this.registerReceiver(mFrameStatsReceiver,
+                    new IntentFilter(ACTION_DUMP_FRAME_STATS), android.Manifest.permission.DUMP,
+                    null);
+            PiWatchFace.this.registerReceiver(mThemeReceiver,
+                    new IntentFilter(ACTION_SET_THEME), android.Manifest.permission.DUMP, null);
+
+            mDataExecutor = Executors.newSingleThreadScheduledExecutor(DATA_THREADS);
+            mDataPipeline = new DataPipeline(mDataExecutor, SYSTEM_CLOCK);
+            // Steps, next event and weather stay empty until there are real providers for them.
+            mDataPipeline.setSource(DataPipeline.BATTERY, new BatterySource(PiWatchFace.this),
+                    DATA_INTERVAL_MS);
+        }
+
+        /**
+         * Decodes the typeface, opens and indexes the quotes, and builds the paints and the dial
+         * layer with the typeface for the first layout, all on a background thread, then hands
+         * them to {@link #onResourcesLoaded} on the main thread. None of it is needed for the
+         * first frame, which draws the dial directly with the default typeface.
+         */
+        private void loadResources(final FaceLayout layout) {
+            final AssetManager assets = getAssets();
+            final Theme theme = mStyles.getTheme();
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Typeface typeface = null;
+                    try {
+                        typeface = Typeface.createFromAsset(assets, TYPEFACE_ASSET);
+                    } catch (RuntimeException e) {
+                        Log.w(TAG, "Failed to load " + TYPEFACE_ASSET, e);
+                    }
+                    QuoteLibrary library = null;
+                    try {
+                        library = new QuoteLibrary(AssetQuoteSource.open(assets, QUOTES_ASSET));
+                        library.buildIndex();
+                    } catch (IOException e) {
+                        Log.w(TAG, "Failed to load " + QUOTES_ASSET, e);
+                        if (library != null) {
+                            library.close();
+                            library = null;
+                        }
+                    }
+                    final Typeface loadedTypeface = typeface;
+                    final QuoteLibrary loadedLibrary = library;
+                    final PaintSet[] paintSets = StyleRegistry.build(theme, layout, typeface);
+                    final Bitmap dialLayer = DialLayerCache.render(layout,
+                            paintSets[StyleRegistry.INTERACTIVE]);
+                    mUpdateTimeHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onResourcesLoaded(loadedTypeface, loadedLibrary, theme, layout,
+                                    paintSets, dialLayer);
+                        }
+                    });
+                }
+            });
+        }
 
-            mBackgroundPaint = new Paint();
-            mBackgroundPaint.setColor(resources.getColor(R.color.analog_background));
-
-            mBlackPaint = new Paint();
-            mBlackPaint.setColor(resources.getColor(R.color.analog_background));
-            mBlackPaint.setAntiAlias(true);
-
-            mHandPaint = new Paint();
-            mHandPaint.setColor(resources.getColor(R.color.orange));
-            mHandPaint.setStrokeWidth(resources.getDimension(R.dimen.analog_hand_stroke));
-            mHandPaint.setAntiAlias(true);
-            mHandPaint.setStrokeCap(Paint.Cap.ROUND);
-
-            mMinuteHandPaint = new Paint();
-            mMinuteHandPaint.setColor(resources.getColor(R.color.orange));
-            mMinuteHandPaint.setStrokeWidth(resources.getDimension(R.dimen.analog_hand_stroke_min));
-            mMinuteHandPaint.setAntiAlias(true);
-            mMinuteHandPaint.setStrokeCap(Paint.Cap.ROUND);
-
-            mSecHandPaint = new Paint();
-            mSecHandPaint.setColor(resources.getColor(R.color.blue_1));
-            mSecHandPaint.setStrokeWidth(resources.getDimension(R.dimen.medium_small));
-            mSecHandPaint.setAntiAlias(true);
-            mSecHandPaint.setStrokeCap(Paint.Cap.ROUND);
-            mSecHandPaint.setPathEffect(new DashPathEffect(new float[]{1f, 5f}, 0));
-
-            mDotPaint = new Paint();
-            mDotPaint.setColor(resources.getColor(R.color.blue_1));
-            mDotPaint.setStrokeWidth(resources.getDimension(R.dimen.small));
-            mDotPaint.setAntiAlias(true);
-            mDotPaint.setStrokeCap(Paint.Cap.ROUND);
-
-            mDot1Paint = new Paint();
-            mDot1Paint.setColor(resources.getColor(R.color.blue_1));
-            mDot1Paint.setStrokeWidth(resources.getDimension(R.dimen.medium_large));
-            mDot1Paint.setAntiAlias(true);
-            mDot1Paint.setStrokeCap(Paint.Cap.ROUND);
-
-            mDot2Paint = new Paint();
-            mDot2Paint.setColor(resources.getColor(R.color.orange));
-            mDot2Paint.setStrokeWidth(resources.getDimension(R.dimen.medium));
-            mDot2Paint.setAntiAlias(true);
-            mDot2Paint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mDot3Paint = new Paint();
-            mDot3Paint.setColor(resources.getColor(R.color.yellow));
-            mDot3Paint.setStrokeWidth(resources.getDimension(R.dimen.medium_large));
-            mDot3Paint.setAntiAlias(true);
-            mDot3Paint.setStrokeCap(Paint.Cap.ROUND);
-
-            mDot2aPaint = new Paint();
-            mDot2aPaint.setColor(resources.getColor(R.color.orange));
-            mDot2aPaint.setStrokeWidth(resources.getDimension(R.dimen.small));
-            mDot2aPaint.setAntiAlias(true);
-            mDot2aPaint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mDot3aPaint = new Paint();
-            mDot3aPaint.setColor(resources.getColor(R.color.yellow));
-            mDot3aPaint.setStrokeWidth(resources.getDimension(R.dimen.medium_small));
-            mDot3aPaint.setAntiAlias(true);
-            mDot3aPaint.setStrokeCap(Paint.Cap.SQUARE);
-
-            mDigitalPaint = new Paint();
-            mDigitalPaint.setColor(resources.getColor(R.color.blue_1));
-            mDigitalPaint.setTextSize(32f);
-            mDigitalPaint.setTypeface(myTypeface);
-            mDigitalPaint.setTextAlign(Paint.Align.CENTER);
-            mDigitalPaint.setAntiAlias(true);
-
-            mDigitalRedPaint = new Paint();
-            mDigitalRedPaint.setColor(resources.getColor(R.color.orange));
-            mDigitalRedPaint.setTextSize(12f);
-            mDigitalRedPaint.setTypeface(myTypeface);
-            mDigitalRedPaint.setFakeBoldText(true);
-            mDigitalRedPaint.setTextAlign(Paint.Align.CENTER);
-            mDigitalRedPaint.setAntiAlias(true);
-
-            mHighLightPaint = new Paint();
-            mHighLightPaint.setColor(resources.getColor(R.color.red_3));
-            mHighLightPaint.setAntiAlias(true);
-
-            mHighLight2Paint = new Paint();
-            mHighLight2Paint.setColor(resources.getColor(R.color.yellow));
-            mHighLight2Paint.setStrokeWidth(resources.getDimension(R.dimen.medium));
-            mHighLight2Paint.setStrokeCap(Paint.Cap.ROUND);
-            mHighLight2Paint.setAntiAlias(true);
-
-            mQuotePaint = new Paint();
-            mQuotePaint.setColor(resources.getColor(R.color.red_3));
-            mQuotePaint.setTextSize(16f);
-            mQuotePaint.setTypeface(myTypeface);
-            mQuotePaint.setTextAlign(Paint.Align.CENTER);
-            mQuotePaint.setAntiAlias(true);
-
-            mTime = new Time();
-
-            quotes[0] = resources.getString(R.string.quote1);
-            quotes[1] = resources.getString(R.string.quote2);
-            quotes[2] = resources.getString(R.string.quote3);
-            quotes[3] = resources.getString(R.string.quote4);
-            quotes[4] = resources.getString(R.string.quote5);
-            quotes[5] = resources.getString(R.string.quote6);
-            quotes[6] = resources.getString(R.string.quote7);
-            quotes[7] = resources.getString(R.string.quote8);
+        /**
+         * Swaps in what {@link #loadResources} loaded. Everything but the quote changes between
+         * two frames: the next one has the typeface and the dial layer together. The quote is
+         * laid out on {@link #QUOTE_LOADER} and follows as soon as it is ready. Paints or a
+         * layer built for a layout or theme that has changed since are dropped and built again
+         * on the main thread.
+         */
+        private void onResourcesLoaded(Typeface typeface, QuoteLibrary library, Theme theme,
+                FaceLayout layout, PaintSet[] paintSets, Bitmap dialLayer) {
+            if (mDestroyed) {
+                if (library != null) {
+                    library.close();
+                }
+                StyleRegistry.release(paintSets);
+                dialLayer.recycle();
+                return;
+            }
+            mStyles.setTypeface(typeface, theme, layout, paintSets);
+            if (library != null) {
+                mQuoteLibrary = library;
+                mQuotes = new QuoteProvider(library, QuoteRotationPolicy.SEQUENTIAL,
+                        QUOTE_LOADER, mMainExecutor, mQuoteListener);
+            }
+            mResourcesLoaded = true;
+            mStartup.record(FrameStats.STARTUP_RESOURCES_LOADED, System.nanoTime() - mCreateNanos);
+            mDamageTracker.invalidate();
+            // The paint sets are all new, so this lays the quote out again too.
+            updatePaintSet();
+            if (mInteractivePaints != paintSets[StyleRegistry.INTERACTIVE]
+                    || !mDialLayers.setLayer(dialLayer, layout.dial, layout.width,
+                            layout.height)) {
+                dialLayer.recycle();
+            }
+            invalidate();
         }
 
         @Override
         public void onDestroy() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mDestroyed = true;
+            mTickScheduler.stop();
+            mSweepScheduler.stop();
+            mDataPipeline.stop();
+            mDataExecutor.shutdownNow();
+            PiWatchFace.this.unregisterReceiver(mFrameStatsReceiver);
+            PiWatchFace.this.unregisterReceiver(mThemeReceiver);
+            releaseGl();
+            mDialLayers.release();
+            mStyles.release();
+            if (mQuoteLibrary != null) {
+                // After any layouts still queued on the loader.
+                final QuoteLibrary library = mQuoteLibrary;
+                QUOTE_LOADER.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        library.close();
+                    }
+                });
+            }
             super.onDestroy();
         }
 
@@ -240,6 +481,128 @@ public class PiWatchFace extends CanvasWatchFaceService {
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
+            mAmbientRenderer.setBurnInProtection(
+                    properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false));
+            updatePaintSet();
+            mDamageTracker.invalidate();
+        }
+
+        /**
+         * Points the draw target at the paints for the current theme and mode, and redoes what
+         * depends on the interactive paints when the theme has changed. Cheap enough to call
+         * before every frame, which is how a theme change takes effect. Does nothing until the
+         * face has been laid out. Returns whether the interactive paints changed, and with them
+         * the quote layout.
+         */
+        private boolean updatePaintSet() {
+            if (mLayout == null) {
+                return false;
+            }
+            PaintSet interactive = mStyles.getPaintSet(false, mLowBitAmbient);
+            boolean changed = false;
+            if (interactive != mInteractivePaints) {
+                mInteractivePaints = interactive;
+                mDamagePadding = Math.max(interactive.getPaint(Ink.SECOND_HAND).getStrokeWidth(),
+                        interactive.getPaint(Ink.SECOND_MARKER).getStrokeWidth()) / 2 + 2;
+                mDialLayers.invalidate();
+                mDamageTracker.invalidate();
+                updateQuoteLayout();
+                changed = true;
+            }
+            mDrawTarget.setPaintSet(
+                    mAmbient ? mStyles.getPaintSet(true, mLowBitAmbient) : interactive);
+            return changed;
+        }
+
+        private void updateQuoteLayout() {
+            if (mQuotes == null || mLayout == null) {
+                return;
+            }
+            // Measured on the loader while frames draw with the original, so it gets a copy.
+            final Paint paint = new Paint(mInteractivePaints.getPaint(Ink.QUOTE_TEXT));
+            TextMeasurer measurer = new TextMeasurer() {
+                @Override
+                public float measureText(char[] text, int index, int count) {
+                    return paint.measureText(text, index, count);
+                }
+            };
+            mQuotes.setLayout(measurer, mLayout.quoteWidth, QUOTE_MAX_LINES,
+                    mLayout.quoteLineHeight);
+            mQuotes.prepareNext(mFaceState.time);
+        }
+
+        @Override
+        public void onApplyWindowInsets(WindowInsets insets) {
+            super.onApplyWindowInsets(insets);
+            int chinHeight = insets.getSystemWindowInsetBottom();
+            if (chinHeight == mChinHeight) {
+                return;
+            }
+            mChinHeight = chinHeight;
+            // Before the first surface, onSurfaceChanged lays the face out with the new chin.
+            if (mLayout != null) {
+                updateLayout(mLayout.width, mLayout.height);
+                invalidate();
+            }
+        }
+
+        @Override
+        public void onSurfaceCreated(SurfaceHolder holder) {
+            // GL has to take the surface before the canvas locks it for the first time.
+            if (mUseGl) {
+                mGl = GlFaceRenderer.create(holder);
+                if (mGl == null) {
+                    mUseGl = false;
+                }
+            }
+            super.onSurfaceCreated(holder);
+        }
+
+        @Override
+        public void onSurfaceDestroyed(SurfaceHolder holder) {
+            releaseGl();
+            super.onSurfaceDestroyed(holder);
+        }
+
+        private void releaseGl() {
+            mUpdateTimeHandler.removeMessages(MSG_DRAW_GL);
+            if (mGl != null) {
+                mGl.release();
+                mGl = null;
+            }
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            updateLayout(width, height);
+        }
+
+        /**
+         * Lays the face out for the surface size, chin and density, if any of them changed.
+         * Everything sized from the layout (paints, dial layer, quote) follows.
+         */
+        private void updateLayout(int width, int height) {
+            FaceLayout layout = FaceLayout.obtain(mLayout, width, height, mChinHeight, mDensity);
+            if (layout == mLayout) {
+                return;
+            }
+            boolean first = mLayout == null;
+            mLayout = layout;
+            mRenderer.setLayout(layout);
+            mAmbientRenderer.setLayout(layout);
+            mDialLayers.setSurface(layout.dial, width, height);
+            mStyles.setLayout(layout);
+            mDamageTracker.invalidate();
+            // Frame costs measured on the old surface say little about the new one.
+            mFrameRatePolicy.reset();
+            if (!updatePaintSet()) {
+                // Same paints, but the quote may have room for a different width.
+                updateQuoteLayout();
+            }
+            if (first) {
+                loadResources(layout);
+            }
         }
 
         @Override
@@ -248,16 +611,17 @@ public class PiWatchFace extends CanvasWatchFaceService {
             invalidate();
         }
 
-        private int mCount;
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
             if (mAmbient != inAmbientMode) {
                 mAmbient = inAmbientMode;
-                if (mLowBitAmbient) {
-                    mHandPaint.setAntiAlias(!inAmbientMode);
+                mFrameStats.recordModeChange(SystemClock.elapsedRealtime(), inAmbientMode);
+                mDamageTracker.invalidate();
+                if (!inAmbientMode && mQuotes != null) {
+                    // Show the next quote each time the watch is looked at again.
+                    mQuotes.rotate(mFaceState.time);
                 }
-                //mCount++;
                 invalidate();
             }
 
@@ -266,208 +630,230 @@ public class PiWatchFace extends CanvasWatchFaceService {
             updateTimer();
         }
 
+        /** On the GL backend, draws on the handler instead, once for any number of calls. */
+        @Override
+        public void invalidate() {
+            if (mGl == null) {
+                super.invalidate();
+            } else if (!mUpdateTimeHandler.hasMessages(MSG_DRAW_GL)) {
+                mUpdateTimeHandler.sendEmptyMessage(MSG_DRAW_GL);
+            }
+        }
+
+        @Override
+        public void onSurfaceRedrawNeeded(SurfaceHolder holder) {
+            if (mGl == null) {
+                super.onSurfaceRedrawNeeded(holder);
+                return;
+            }
+            mUpdateTimeHandler.removeMessages(MSG_DRAW_GL);
+            drawGlFrame();
+        }
+
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            mTime.setToNow();
-
-            int width = bounds.width();
-            int height = bounds.height();
-
-            // Draw the background.
-            canvas.drawRect(0, 0, canvas.getWidth(), canvas.getHeight(), mBackgroundPaint);
-
-            // Find the center. Ignore the window insets so that, on round watches with a
-            // "chin", the watch face is centered on the entire screen, not just the usable
-            // portion.
-            float centerX = width / 2f;
-            float centerY = height / 2f;
-
-            float secRot = mTime.second / 30f * (float) Math.PI;
-            int minutes = mTime.minute;
-            float minRot = minutes / 30f * (float) Math.PI;
-            float hrRot = ((mTime.hour + (minutes / 60f)) / 6f) * (float) Math.PI;
-
-            float secLength = centerX - 28;
-            float minLength = centerX - 40;
-            float hrLength = centerX - 80;
-
-            if (!mAmbient) {
-                canvas.drawLines(
-                        new float[]{
-                                centerX, 5f, centerX, 20f,
-                                width - 5f, centerY, width - 20f, centerY,
-                                centerX, height - 5, centerX, height - 20f,
-                                5f, centerY, 20f, centerY
-                        },
-                        mDot3Paint);
+            long startNanos = System.nanoTime();
+            long now = prepareFrame(bounds.width(), bounds.height());
+            drawFrame(canvas);
+            onFrameDrawn(now, startNanos);
+        }
+
+        /**
+         * Draws a tick within the same minute by repainting only the area the second hand and
+         * marker move through, locking just that part of the surface. Falls back to a full
+         * {@link #invalidate()} whenever anything else on the face changed.
+         */
+        private void drawDamagedRegion() {
+            long startNanos = System.nanoTime();
+            SurfaceHolder holder = getSurfaceHolder();
+            Rect frame = holder.getSurfaceFrame();
+            long now = prepareFrame(frame.width(), frame.height());
+            if (!mDamageTracker.getDamage(mRenderer, mFaceState, mDamagePadding, mDamage)) {
+                invalidate();
+                return;
+            }
+            mDirtyRect.set(mDamage[0], mDamage[1], mDamage[2], mDamage[3]);
+            // The canvas comes back clipped to the dirty rect, which the surface may have
+            // grown; everything outside it keeps the previous frame's pixels.
+            Canvas canvas = holder.lockCanvas(mDirtyRect);
+            if (canvas == null) {
+                invalidate();
+                return;
+            }
+            try {
+                drawFrame(canvas);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            onFrameDrawn(now, startNanos);
+        }
+
+        /** Draws a full frame into the locked surface right away, without waiting for a vsync. */
+        private void drawSurfaceFrame() {
+            long startNanos = System.nanoTime();
+            SurfaceHolder holder = getSurfaceHolder();
+            Rect frame = holder.getSurfaceFrame();
+            long now = prepareFrame(frame.width(), frame.height());
+            Canvas canvas = holder.lockCanvas();
+            if (canvas == null) {
+                invalidate();
+                return;
+            }
+            try {
+                drawFrame(canvas);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+            onFrameDrawn(now, startNanos);
+        }
+
+        /** Draws a full frame with the GL backend. */
+        private void drawGlFrame() {
+            if (mGl == null) {
+                return;
+            }
+            long startNanos = System.nanoTime();
+            Rect frame = getSurfaceHolder().getSurfaceFrame();
+            long now = prepareFrame(frame.width(), frame.height());
+            if (mAmbient) {
+                mGl.drawAmbient(mAmbientRenderer, mLayout, mFaceState.time, mDrawTarget);
             } else {
-                canvas.drawLines(
-                        new float[]{
-                                centerX, 5f, centerX, 20f,
-                                width - 5f, centerY, width - 20f, centerY,
-                                centerX, height - 5, centerX, height - 20f,
-                                5f, centerY, 20f, centerY
-                        },
-                        mDot3aPaint);
-            }
-            canvas.drawLines(getLines(centerX, centerY, 15f), mDot2aPaint);
-
-            if (!mAmbient) {
-                canvas.drawPoints(getPoints(centerX, centerY), mDotPaint);
-
-                float secX = (float) Math.sin(secRot) * secLength;
-                float secY = (float) -Math.cos(secRot) * secLength;
-                float secX2 = (float) Math.sin(secRot) * 17;
-                float secY2 = (float) -Math.cos(secRot) * 17;
-
-                canvas.drawLine(centerX + secX2, centerY + secY2, centerX + secX, centerY + secY, mSecHandPaint);
-                if (mTime.second % 15 == 0) {
-                    canvas.drawLine(getX(centerX, centerX - 20, secRot), getY(centerY, centerY - 20, secRot),
-                            getX(centerX, centerX - 5 , secRot), getY(centerY, centerY - 5, secRot), mDot1Paint);
-//                    canvas.drawCircle(getX(centerX, centerX - 10, secRot), getY(centerY, centerX - 10, secRot), 10f, mHighLightPaint);
-//                    canvas.drawCircle(getX(centerX, centerX - 10, secRot), getY(centerY, centerX - 10, secRot), 5f, mDigitalRedPaint);
-                } else if (mTime.second % 5 == 0) {
-                    canvas.drawLine(getX(centerX, centerX - 15, secRot), getY(centerY, centerY - 15, secRot),
-                            getX(centerX, centerX - 5, secRot), getY(centerY, centerY - 5, secRot), mDot1Paint);
+                mGl.drawInteractive(mRenderer, mFaceState, getDialLayer(), mDrawTarget);
+            }
+            onFrameDrawn(now, startNanos);
+        }
 
-                } else {
-                    //canvas.drawCircle(getX(centerX, centerX - 10, secRot), getY(centerY, centerX - 10, secRot), 10f, mHighLightPaint);
-                    canvas.drawCircle(getX(centerX, centerX - 10, secRot), getY(centerY, centerX - 10, secRot), 3f, mDotPaint);
+        /**
+         * Updates the layout and {@link #mFaceState} for a frame about to be drawn.
+         * Returns the frame's wall time.
+         */
+        private long prepareFrame(int width, int height) {
+            long now = System.currentTimeMillis();
+            updateLayout(width, height);
+            updatePaintSet();
+
+            FaceState state = mFaceState;
+            state.ambient = mAmbient;
+            DataSnapshot data = mDataPipeline.getSnapshot();
+            if (data != state.data) {
+                TimeZone zone = data.getTimeZone();
+                if (zone != null && (state.data == null || zone != state.data.getTimeZone())) {
+                    state.time.setZone(zone);
                 }
+                state.data = data;
+            }
+            state.time.set(mSweepSecondHand ? now : now - now % 1000);
+            state.quote = mQuotes != null ? mQuotes.getCurrent() : null;
+            return now;
+        }
 
-                canvas.drawText(mTime.format("%m-%d"), centerX, centerY - 67, mDigitalRedPaint);
-                canvas.drawText(mTime.format("%H:%M"), centerX, centerY - 36, mDigitalPaint);
-                int pick = mCount % 4;
-                canvas.drawText(quotes[pick], centerX, centerY - 18, mQuotePaint);
+        private void drawFrame(Canvas canvas) {
+            if (mAmbient) {
+                mDrawTarget.setCanvas(canvas);
+                mAmbientRenderer.draw(mDrawTarget, mFaceState.time);
+                mDrawTarget.setCanvas(null);
+                return;
+            }
+            // Draw the background and the dial from the cached layer.
+            Bitmap dialLayer = getDialLayer();
+            mDrawTarget.setCanvas(canvas);
+            if (dialLayer != null) {
+                canvas.drawBitmap(dialLayer, 0, 0, null);
             } else {
-                mCount++;
-            }
-
-
-            float minX = (float) Math.sin(minRot) * minLength;
-            float minY = (float) -Math.cos(minRot) * minLength;
-            float minX2 = (float) Math.sin(minRot) * 17;
-            float minY2 = (float) -Math.cos(minRot) * 17;
-            canvas.drawLine(centerX + minX2, centerY + minY2, centerX + minX, centerY + minY, mMinuteHandPaint);
-
-            float hrX = (float) Math.sin(hrRot) * hrLength;
-            float hrY = (float) -Math.cos(hrRot) * hrLength;
-            float hrX2 = (float) Math.sin(hrRot) * 17;
-            float hrY2 = (float) -Math.cos(hrRot) * 17;
-            canvas.drawLine(centerX + hrX2, centerY + hrY2, centerX + hrX, centerY + hrY, mHandPaint);
-
-            canvas.drawCircle(centerX, centerY, 11f, mHandPaint);
-            canvas.drawCircle(centerX, centerY, 8f, mBlackPaint);
-        }
-        private float[] getLines(float centerX, float centerY, float size) {
-            return new float[]{
-                    centerX + (float) (centerX * Math.sin(Math.PI / 6)), centerY - (float) (centerX * Math.cos(Math.PI / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI / 6)),
-                    centerX + (float) (centerX * Math.sin(Math.PI / 3)), centerY - (float) (centerX * Math.cos(Math.PI / 3)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI / 3)), centerY - (float) ((centerX - size) * Math.cos(Math.PI / 3)),
-                    centerX + (float) (centerX * Math.sin(Math.PI * 4 / 6)), centerY - (float) (centerX * Math.cos(Math.PI * 4 / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI * 4 / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI * 4 / 6)),
-                    centerX + (float) (centerX * Math.sin(Math.PI * 5 / 6)), centerY - (float) (centerX * Math.cos(Math.PI * 5 / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI * 5 / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI * 5 / 6)),
-                    centerX + (float) (centerX * Math.sin(Math.PI * 7 / 6)), centerY - (float) (centerX * Math.cos(Math.PI * 7 / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI * 7 / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI * 7 / 6)),
-                    centerX + (float) (centerX * Math.sin(Math.PI * 8 / 6)), centerY - (float) (centerX * Math.cos(Math.PI * 8 / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI * 8 / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI * 8 / 6)),
-                    centerX + (float) (centerX * Math.sin(Math.PI * 10 / 6)), centerY - (float) (centerX * Math.cos(Math.PI * 10 / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI * 10 / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI * 10 / 6)),
-                    centerX + (float) (centerX * Math.sin(Math.PI * 11 / 6)), centerY - (float) (centerX * Math.cos(Math.PI * 11 / 6)),
-                    centerX + (float) ((centerX - size) * Math.sin(Math.PI * 11 / 6)), centerY - (float) ((centerX - size) * Math.cos(Math.PI * 11 / 6))
-            };
+                mRenderer.drawStaticDial(mDrawTarget);
+            }
+            mRenderer.drawMovingParts(mDrawTarget, mFaceState);
+            mDrawTarget.setCanvas(null);
         }
-        private float getX(float centerX, float length, float angle) {
-            return centerX + (float) (length * Math.sin(angle));
-        }
-        private float getY(float centerY, float length, float angle) {
-            return centerY - (float) (length * Math.cos(angle));
-        }
-        private float[] getPoints(float centerX, float centerY) {
-            return new float[] {
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 1 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 1 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 2 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 2 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 3 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 3 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 4 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 4 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 6 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 6 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 7 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 7 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 8 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 8 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 9 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 9 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 11 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 11 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 12 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 12 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 13 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 13 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 14 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 14 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 16 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 16 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 17 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 17 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 18 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 18 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 19 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 19 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 21 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 21 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 22 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 22 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 23 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 23 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 24 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 24 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 26 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 26 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 27 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 27 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 28 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 28 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 29 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 29 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 26 / 30)), centerY - (float) ((centerX - 10)* Math.cos(Math.PI * 26 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 27 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 27 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 28 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 28 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 29 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 29 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 31 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 31 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 32 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 32 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 33 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 33 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 34 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 34 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 36 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 36 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 37 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 37 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 38 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 38 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 39 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 39 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 41 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 41 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 42 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 42 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 43 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 43 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 44 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 44 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 46 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 46 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 47 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 47 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 48 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 48 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 49 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 49 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 51 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 51 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 52 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 52 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 53 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 53 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 54 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 54 / 30)),
-
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 56 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 56 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 57 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 57 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 58 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 58 / 30)),
-                    centerX + (float) ((centerX - 10) * Math.sin(Math.PI * 59 / 30)), centerY - (float) ((centerX - 10) * Math.cos(Math.PI * 59 / 30))
 
-            };
+        /**
+         * Returns the dial layer, or null to draw the dial directly. Until the resources are
+         * loaded there is no layer: {@link #loadResources} renders it off the main thread with
+         * the typeface's paints, so no frame has to wait for it.
+         */
+        private Bitmap getDialLayer() {
+            return mResourcesLoaded ? mDialLayers.getLayer() : null;
+        }
+
+        private void onFrameDrawn(long now, long startNanos) {
+            if (!mFullFrameDrawn) {
+                long sinceCreateNanos = System.nanoTime() - mCreateNanos;
+                mStartup.record(FrameStats.STARTUP_FIRST_FRAME, sinceCreateNanos);
+                if (mResourcesLoaded) {
+                    mStartup.record(FrameStats.STARTUP_FULL_FRAME, sinceCreateNanos);
+                    mFullFrameDrawn = true;
+                }
+            }
 
+            mTickScheduler.onFrameDrawn(now);
+            mDamageTracker.onFrameDrawn(mRenderer, mFaceState, mDamagePadding);
+
+            long endNanos = System.nanoTime();
+            mFrameStats.recordRender(endNanos - startNanos);
+            if (mSweepSecondHand && !mAmbient) {
+                int frameRate = mSweepScheduler.isRunning() ? mSweepScheduler.getFrameRate() : 1;
+                if (mSweepFrameTimeNanos != 0) {
+                    mFrameRatePolicy.onFrameDrawn(mSweepTargetNanos, mSweepFrameTimeNanos,
+                            startNanos, endNanos, frameRate);
+                } else {
+                    mFrameRatePolicy.onFrameDrawn(startNanos, startNanos, startNanos, endNanos,
+                            frameRate);
+                }
+            }
+        }
+
+        /**
+         * Draws the sweep frame on the vsync the scheduler picked. Going through
+         * {@link #invalidate()} would only draw it on the next vsync, a frame late.
+         */
+        @Override
+        public void onSweepFrame(long targetNanos, long frameTimeNanos) {
+            mSweepTargetNanos = targetNanos;
+            mSweepFrameTimeNanos = frameTimeNanos;
+            if (mGl != null) {
+                mUpdateTimeHandler.removeMessages(MSG_DRAW_GL);
+                drawGlFrame();
+            } else if (mPartialRedraw) {
+                // A new minute still takes a full frame through invalidate(), once a minute.
+                drawDamagedRegion();
+            } else {
+                drawSurfaceFrame();
+            }
+            mSweepTargetNanos = 0;
+            mSweepFrameTimeNanos = 0;
+            if (getSweepFrameRate() != mSweepScheduler.getFrameRate()) {
+                updateTimer();
+            }
+        }
+
+        @Override
+        public void drawStaticDial(Canvas canvas) {
+            mDrawTarget.setCanvas(canvas);
+            mRenderer.drawStaticDial(mDrawTarget);
+            mDrawTarget.setCanvas(null);
+            if (mGl != null) {
+                mGl.invalidateDial();
+            }
         }
 
         @Override
         public void onVisibilityChanged(boolean visible) {
             super.onVisibilityChanged(visible);
 
+            mDamageTracker.invalidate();
             if (visible) {
                 registerReceiver();
 
+                PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+                mFrameRatePolicy.setPowerBudget(
+                        powerManager.isPowerSaveMode() ? 0 : SWEEP_POWER_BUDGET);
+
                 // Update time zone in case it changed while we weren't visible.
-                mTime.clear(TimeZone.getDefault().getID());
-                mTime.setToNow();
+                mDataPipeline.setTimeZone(TimeZone.getDefault());
+                mDataPipeline.start(DATA_POLL_MS);
             } else {
                 unregisterReceiver();
+                mDataPipeline.stop();
             }
 
             // Whether the timer should be running depends on whether we're visible (as well as
@@ -481,6 +867,7 @@ public class PiWatchFace extends CanvasWatchFaceService {
             }
             mRegisteredTimeZoneReceiver = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
             PiWatchFace.this.registerReceiver(mTimeZoneReceiver, filter);
         }
 
@@ -493,18 +880,67 @@ public class PiWatchFace extends CanvasWatchFaceService {
         }
 
         /**
-         * Starts the {@link #mUpdateTimeHandler} timer if it should be running and isn't currently
-         * or stops it if it shouldn't be running but currently is.
+         * Starts the {@link #mTickScheduler} timer if it should be running and isn't currently
+         * or stops it if it shouldn't be running but currently is. Starting a running timer
+         * leaves its pending tick alone.
          */
         private void updateTimer() {
-            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            int frameRate = getSweepFrameRate();
+            if (frameRate > 1) {
+                mTickScheduler.stop();
+                mSweepScheduler.start(frameRate);
+                return;
+            }
+            mSweepScheduler.stop();
             if (shouldTimerBeRunning()) {
-                mUpdateTimeHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+                mTickScheduler.start();
+            } else {
+                mTickScheduler.stop();
+            }
+        }
+
+        @Override
+        public void scheduleAlarm(long uptimeMillis) {
+            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mUpdateTimeHandler.sendEmptyMessageAtTime(MSG_UPDATE_TIME, uptimeMillis);
+        }
+
+        @Override
+        public void cancelAlarm() {
+            mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+        }
+
+        @Override
+        public void onTick(long latencyMillis) {
+            if (latencyMillis >= 0) {
+                mFrameStats.recordTickLatency(TimeUnit.MILLISECONDS.toNanos(latencyMillis),
+                        TimeUnit.MILLISECONDS.toNanos(INTERACTIVE_UPDATE_RATE_MS));
+            }
+            // GL frames are always drawn in full, the swap doesn't keep the previous pixels.
+            if (mPartialRedraw && !mAmbient && mGl == null) {
+                drawDamagedRegion();
+            } else {
+                invalidate();
+            }
+            if (getSweepFrameRate() > 1) {
+                // The frame cost went down far enough to sweep again.
+                updateTimer();
+            }
+        }
+
+        /**
+         * Returns the frame rate for the sweeping second hand, or 0 if the second hand doesn't
+         * sweep or nothing should be drawn.
+         */
+        private int getSweepFrameRate() {
+            if (!mSweepSecondHand) {
+                return 0;
             }
+            return mFrameRatePolicy.getFrameRate(isVisible(), isInAmbientMode());
         }
 
         /**
-         * Returns whether the {@link #mUpdateTimeHandler} timer should be running. The timer should
+         * Returns whether the {@link #mTickScheduler} timer should be running. The timer should
          * only run when we're visible and in interactive mode.
          */
         private boolean shouldTimerBeRunning() {
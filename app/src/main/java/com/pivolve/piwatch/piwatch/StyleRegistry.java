@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.piwatch;
+
+import android.graphics.Typeface;
+
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.Ink;
+import com.pivolve.piwatch.face.Theme;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out the {@link PaintSet} for the current theme and display mode. Each combination of
+ * theme, ambient and low-bit is built the first time it is asked for and kept, so a mode
+ * change is an array lookup and a theme change is a reference swap that the next frame picks
+ * up. The theme may be set from any thread; paint sets are read on the main thread, and built
+ * there too unless {@link #build} made them ahead of time.
+ *
+ * <p>Sizes depend on the {@link FaceLayout}, so the cached sets are dropped when the surface is
+ * scaled differently.
+ *
+ * <p>The face's typeface loads after the first frame. Until it is set, the sets use the default
+ * typeface and skip the glyph atlases, which would only be rendered again with the real one.
+ * The sets for the real typeface are built next to it on the loader and handed over with it.
+ */
+final class StyleRegistry {
+    /** The readouts only use digits, ':' and '-', so they can be drawn from an atlas. */
+    private static final int[] GLYPH_ATLAS_INKS = {Ink.TIME_TEXT, Ink.DATE_TEXT};
+
+    /** Index of the interactive set in the arrays from {@link #build}. */
+    static final int INTERACTIVE = 0;
+    private static final int AMBIENT = 1;
+    private static final int LOW_BIT_AMBIENT = 2;
+
+    /** Null until loaded. */
+    private Typeface mTypeface;
+    /** Paint sets per theme, indexed by {@link #index}. */
+    private final Map<Theme, PaintSet[]> mPaintSets = new HashMap<Theme, PaintSet[]>();
+
+    private volatile Theme mTheme;
+    private FaceLayout mLayout;
+
+    StyleRegistry(Theme theme) {
+        mTheme = theme;
+    }
+
+    Theme getTheme() {
+        return mTheme;
+    }
+
+    void setTheme(Theme theme) {
+        mTheme = theme;
+    }
+
+    /**
+     * Sets the typeface of the text paints, together with the paint sets of {@code theme} that
+     * {@link #build} made with it for {@code layout}. Those are kept if the layout still has
+     * the same scale and density, and released otherwise. All other sets are built again.
+     */
+    void setTypeface(Typeface typeface, Theme theme, FaceLayout layout, PaintSet[] sets) {
+        mTypeface = typeface;
+        release();
+        mPaintSets.clear();
+        if (isSameScale(layout, mLayout)) {
+            mPaintSets.put(theme, sets);
+        } else {
+            release(sets);
+        }
+    }
+
+    /**
+     * Sets the layout paint sizes are taken from. Paint sets built for a layout of a different
+     * scale or density are released.
+     */
+    void setLayout(FaceLayout layout) {
+        if (!isSameScale(layout, mLayout)) {
+            release();
+            mPaintSets.clear();
+        }
+        mLayout = layout;
+    }
+
+    /** Returns the paints for the current theme in the given mode. Needs a layout. */
+    PaintSet getPaintSet(boolean ambient, boolean lowBitAmbient) {
+        Theme theme = mTheme;
+        PaintSet[] sets = mPaintSets.get(theme);
+        if (sets == null) {
+            sets = new PaintSet[3];
+            mPaintSets.put(theme, sets);
+        }
+        boolean lowBit = ambient && lowBitAmbient;
+        int index = index(ambient, lowBit);
+        if (sets[index] == null) {
+            sets[index] = create(theme, mLayout, mTypeface, ambient, lowBit);
+        }
+        return sets[index];
+    }
+
+    /**
+     * Builds every paint set of a theme for a layout and renders their glyph atlases, on any
+     * thread. The sets are indexed like those of the registry, {@link #INTERACTIVE} first.
+     */
+    static PaintSet[] build(Theme theme, FaceLayout layout, Typeface typeface) {
+        PaintSet[] sets = new PaintSet[3];
+        sets[INTERACTIVE] = create(theme, layout, typeface, false, false);
+        sets[AMBIENT] = create(theme, layout, typeface, true, false);
+        sets[LOW_BIT_AMBIENT] = create(theme, layout, typeface, true, true);
+        for (PaintSet set : sets) {
+            set.prepare();
+        }
+        return sets;
+    }
+
+    private static PaintSet create(Theme theme, FaceLayout layout, Typeface typeface,
+            boolean ambient, boolean lowBit) {
+        return new PaintSet(theme.getStyles(ambient, lowBit), layout, typeface,
+                typeface != null ? GLYPH_ATLAS_INKS : new int[0]);
+    }
+
+    private static int index(boolean ambient, boolean lowBit) {
+        return !ambient ? INTERACTIVE : lowBit ? LOW_BIT_AMBIENT : AMBIENT;
+    }
+
+    private static boolean isSameScale(FaceLayout layout, FaceLayout other) {
+        return other != null && layout.scale == other.scale && layout.density == other.density;
+    }
+
+    /** Frees the glyph atlases of every paint set. */
+    void release() {
+        for (PaintSet[] sets : mPaintSets.values()) {
+            release(sets);
+        }
+    }
+
+    /** Frees the glyph atlases of the given paint sets. */
+    static void release(PaintSet[] sets) {
+        for (PaintSet set : sets) {
+            if (set != null) {
+                set.release();
+            }
+        }
+    }
+}
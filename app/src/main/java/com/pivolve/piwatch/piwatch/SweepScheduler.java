@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.piwatch;
+
+import android.view.Choreographer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the sweeping second hand from the display's vsync signal. After each frame the next
+ * callback is posted with a delay of the rest of the frame interval, so the main thread only
+ * wakes on the vsyncs that draw, and frames stay aligned with the display instead of drifting
+ * like a chain of delayed messages. The callback is expected to draw the frame right away,
+ * on the vsync it was called for.
+ */
+final class SweepScheduler implements Choreographer.FrameCallback {
+    interface Callback {
+        /**
+         * Called on a vsync the frame rate picked. Draw the frame now. {@code targetNanos} is
+         * the vsync the frame was scheduled for and {@code frameTimeNanos} the one it is drawn
+         * on, later if vsyncs were skipped.
+         */
+        void onSweepFrame(long targetNanos, long frameTimeNanos);
+    }
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    /** Slack so that a frame due just after a vsync is not pushed back by a whole period. */
+    private static final long VSYNC_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final Callback mCallback;
+
+    private int mFrameRate;
+    private boolean mRunning;
+    /** The vsync the pending callback is for, or 0 if it is the first since starting. */
+    private long mTargetNanos;
+
+    SweepScheduler(Callback callback) {
+        mCallback = callback;
+    }
+
+    /** Starts or retunes the scheduler. Must be called on the main thread. */
+    void start(int frameRate) {
+        mFrameRate = frameRate;
+        if (!mRunning) {
+            mRunning = true;
+            mTargetNanos = 0;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    void stop() {
+        if (mRunning) {
+            mRunning = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    int getFrameRate() {
+        return mRunning ? mFrameRate : 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        long targetNanos = mTargetNanos != 0 ? mTargetNanos : frameTimeNanos;
+        mCallback.onSweepFrame(targetNanos, frameTimeNanos);
+        if (!mRunning) {
+            // The callback stopped the scheduler.
+            return;
+        }
+        // The frame time and System.nanoTime() share a time base. The delay is measured after
+        // drawing, so a slow frame doesn't push the next one back.
+        mTargetNanos = frameTimeNanos + NANOS_PER_SECOND / mFrameRate;
+        long delayNanos = mTargetNanos - VSYNC_SLACK_NANOS - System.nanoTime();
+        mChoreographer.postFrameCallbackDelayed(this, Math.max(0, delayNanos / NANOS_PER_MILLI));
+    }
+}
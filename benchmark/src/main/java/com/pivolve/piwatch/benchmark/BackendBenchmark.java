@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.FaceRenderer;
+import com.pivolve.piwatch.face.FaceState;
+import com.pivolve.piwatch.face.Ink;
+import com.pivolve.piwatch.face.InkStyle;
+import com.pivolve.piwatch.face.QuoteLayout;
+import com.pivolve.piwatch.face.ShapeBatch;
+import com.pivolve.piwatch.face.Theme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a rasterized interactive frame on each backend, with the static dial cached as a
+ * layer and a second between frames. {@code canvas} copies the dial and draws the hands and
+ * text with Java2D, standing in for the software canvas. {@code gl} does what the GL backend
+ * does, with {@link SoftwareGl} standing in for the GPU: it builds the quads, redraws the text
+ * layer when the minute changes, and composites the layers and quads.
+ *
+ * <p>Both backends rasterize in software here, so this compares the work each one asks for,
+ * not the time it takes on a device, where the GL frame is mostly spent on the GPU.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BackendBenchmark {
+    @Param({"canvas", "gl"})
+    public String backend;
+
+    @Param({"320", "480"})
+    public int size;
+
+    private final FaceRenderer mRenderer = new FaceRenderer();
+    private final FaceState mState = new FaceState();
+    private final ShapeBatch mBatch = new ShapeBatch();
+    private Java2DDrawTarget mTarget;
+    private BufferedImage mDialLayer;
+    private BufferedImage mImage;
+    private Graphics2D mGraphics;
+    private boolean mGl;
+    private SoftwareGl mSoftwareGl;
+    private BufferedImage mTextLayer;
+    private Graphics2D mTextGraphics;
+    private Java2DDrawTarget mTextTarget;
+    private int mTextMinute = -1;
+    /** 2015-07-14 10:09:00 UTC, advanced by a second per frame. */
+    private long mTimeMillis = 1436868540000L;
+
+    @Setup
+    public void setUp() {
+        FaceLayout layout = FaceLayout.obtain(null, size, size, 0, 1);
+        InkStyle[] styles = Theme.CLASSIC.getStyles(false, false);
+        mRenderer.setLayout(layout);
+        mState.time.setZone(TimeZone.getTimeZone("UTC"));
+        char[] quote = "Was I a butterfly in my dream or am I the butterfly's dream? -Laotzi"
+                .toCharArray();
+        mState.quote = QuoteLayout.create(quote,
+                Java2DDrawTarget.measurer(styles[Ink.QUOTE_TEXT], layout),
+                layout.quoteWidth, 3, layout.quoteLineHeight);
+
+        mTarget = new Java2DDrawTarget(styles, layout);
+        mDialLayer = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D dial = mDialLayer.createGraphics();
+        mTarget.setGraphics(dial);
+        mRenderer.drawStaticDial(mTarget);
+        dial.dispose();
+        mImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        mGraphics = mImage.createGraphics();
+        mTarget.setGraphics(mGraphics);
+        mBatch.setStyles(styles, layout);
+        mGl = "gl".equals(backend);
+
+        mSoftwareGl = new SoftwareGl(size, size);
+        mTextLayer = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        mTextGraphics = mTextLayer.createGraphics();
+        mTextTarget = new Java2DDrawTarget(styles, layout);
+        mTextTarget.setGraphics(mTextGraphics);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mGraphics.dispose();
+        mTextGraphics.dispose();
+    }
+
+    @Benchmark
+    public Object frame() {
+        mState.time.set(mTimeMillis += 1000);
+        if (mGl) {
+            mBatch.reset();
+            int minute = mState.time.getMinute();
+            if (minute != mTextMinute) {
+                mTextMinute = minute;
+                mTextGraphics.setComposite(AlphaComposite.Clear);
+                mTextGraphics.fillRect(0, 0, size, size);
+                mTextGraphics.setComposite(AlphaComposite.SrcOver);
+                mBatch.setTextTarget(mTextTarget);
+            }
+            mRenderer.drawMovingParts(mBatch, mState);
+            mBatch.setTextTarget(null);
+            return mSoftwareGl.drawFrame(mBatch, mDialLayer, mTextLayer);
+        }
+        mGraphics.drawImage(mDialLayer, 0, 0, null);
+        mRenderer.drawMovingParts(mTarget, mState);
+        return mImage;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.DrawTarget;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link DrawTarget} that hands every argument to a JMH {@link Blackhole}, so a benchmark
+ * measures the cost of producing the draw calls without rasterizing them.
+ */
+final class BlackholeDrawTarget implements DrawTarget {
+    private final Blackhole mBlackhole;
+
+    BlackholeDrawTarget(Blackhole blackhole) {
+        mBlackhole = blackhole;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int ink) {
+        mBlackhole.consume(left);
+        mBlackhole.consume(top);
+        mBlackhole.consume(right);
+        mBlackhole.consume(bottom);
+        mBlackhole.consume(ink);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        mBlackhole.consume(startX);
+        mBlackhole.consume(startY);
+        mBlackhole.consume(stopX);
+        mBlackhole.consume(stopY);
+        mBlackhole.consume(ink);
+    }
+
+    @Override
+    public void drawLines(float[] pts, int ink) {
+        mBlackhole.consume(pts);
+        mBlackhole.consume(ink);
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int ink) {
+        mBlackhole.consume(pts);
+        mBlackhole.consume(ink);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int ink) {
+        mBlackhole.consume(cx);
+        mBlackhole.consume(cy);
+        mBlackhole.consume(radius);
+        mBlackhole.consume(ink);
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+        mBlackhole.consume(text);
+        mBlackhole.consume(index);
+        mBlackhole.consume(count);
+        mBlackhole.consume(x);
+        mBlackhole.consume(y);
+        mBlackhole.consume(ink);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.AmbientRenderer;
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.FaceRenderer;
+import com.pivolve.piwatch.face.FaceState;
+import com.pivolve.piwatch.face.QuoteLayout;
+import com.pivolve.piwatch.face.TextMeasurer;
+import com.pivolve.piwatch.face.Theme;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing one frame of the face in each display mode. Ambient frames come from the
+ * {@link AmbientRenderer}, a minute apart, with and without burn-in protection.
+ *
+ * <p>{@link #fullFrame} and {@link #movingParts} measure producing the draw calls. A low-bit
+ * display asks for the same calls as ambient mode; it differs in the styles they are drawn
+ * with, aliased and with every colour channel on or off. {@link #rasterizedFrame} draws them
+ * with each mode's styles through Java2D, standing in for the canvas, so that is where
+ * lowbit-ambient and ambient differ.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameBenchmark {
+    /** Roughly the 16px quote font: every character 8px wide. */
+    private static final TextMeasurer FIXED_WIDTH = new TextMeasurer() {
+        @Override
+        public float measureText(char[] text, int index, int count) {
+            return count * 8f;
+        }
+    };
+
+    @Param({"interactive", "ambient", "lowbit-ambient", "burnin-ambient"})
+    public String mode;
+
+    @Param({"320"})
+    public int size;
+
+    private final FaceRenderer mRenderer = new FaceRenderer();
+    private final AmbientRenderer mAmbientRenderer = new AmbientRenderer();
+    private final FaceState mState = new FaceState();
+    private BlackholeDrawTarget mTarget;
+    private Java2DDrawTarget mRasterTarget;
+    private BufferedImage mImage;
+    private Graphics2D mGraphics;
+    /** 2015-07-14 10:09:00 UTC, advanced by a frame interval per frame. */
+    private long mTimeMillis = 1436868540000L;
+    private long mFrameMillis;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        mTarget = new BlackholeDrawTarget(blackhole);
+        FaceLayout layout = FaceLayout.obtain(null, size, size, 0, 1);
+        mRenderer.setLayout(layout);
+        mAmbientRenderer.setLayout(layout);
+        mAmbientRenderer.setBurnInProtection("burnin-ambient".equals(mode));
+        mState.ambient = !"interactive".equals(mode);
+        mFrameMillis = mState.ambient ? 60 * 1000 : 1000;
+        mState.time.setZone(TimeZone.getTimeZone("UTC"));
+        char[] quote = "Was I a butterfly in my dream or am I the butterfly's dream? -Laotzi"
+                .toCharArray();
+        mState.quote = QuoteLayout.create(quote, FIXED_WIDTH, layout.quoteWidth, 3,
+                layout.quoteLineHeight);
+
+        mRasterTarget = new Java2DDrawTarget(
+                Theme.CLASSIC.getStyles(mState.ambient, "lowbit-ambient".equals(mode)), layout);
+        mImage = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        mGraphics = mImage.createGraphics();
+        mRasterTarget.setGraphics(mGraphics);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mGraphics.dispose();
+    }
+
+    /** A full frame: static dial plus moving parts, as drawn without the layer cache. */
+    @Benchmark
+    public void fullFrame() {
+        mState.time.set(mTimeMillis += mFrameMillis);
+        if (mState.ambient) {
+            mAmbientRenderer.draw(mTarget, mState.time);
+        } else {
+            mRenderer.drawFrame(mTarget, mState);
+        }
+    }
+
+    /**
+     * The per-frame work left once the static dial comes from the layer cache. Ambient frames
+     * don't use the cache, so there it is the same as {@link #fullFrame}.
+     */
+    @Benchmark
+    public void movingParts() {
+        mState.time.set(mTimeMillis += mFrameMillis);
+        if (mState.ambient) {
+            mAmbientRenderer.draw(mTarget, mState.time);
+        } else {
+            mRenderer.drawMovingParts(mTarget, mState);
+        }
+    }
+
+    /** A full frame drawn with the mode's styles into a Java2D image. */
+    @Benchmark
+    public Object rasterizedFrame() {
+        mState.time.set(mTimeMillis += mFrameMillis);
+        if (mState.ambient) {
+            mAmbientRenderer.draw(mRasterTarget, mState.time);
+        } else {
+            mRenderer.drawFrame(mRasterTarget, mState);
+        }
+        return mImage;
+    }
+}
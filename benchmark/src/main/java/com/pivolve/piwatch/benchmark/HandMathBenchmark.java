@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.HandGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of positioning the hands and the second marker for one frame: the double-precision
+ * {@code Math.sin}/{@code Math.cos} calls {@code FaceRenderer} used to make, against the
+ * {@link HandGeometry} tables it uses now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HandMathBenchmark {
+    private static final float CENTER = 160f;
+    private static final float TAIL = 17f;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    /** 16ms frames, 60 a second, in one minute. */
+    private static final int SWEEP_FRAMES = 60000 / 16;
+
+    private final HandGeometry mSecondHand = new HandGeometry();
+    private final HandGeometry mMinuteHand = new HandGeometry();
+    private final HandGeometry mHourHand = new HandGeometry();
+
+    /** Frame counter, kept in range so it never overflows into negative positions. */
+    private int mFrame;
+
+    @Benchmark
+    public void handEndpoints(Blackhole blackhole) {
+        int frame = nextTick();
+        int second = frame % 60;
+        int minute = frame / 60 % 60;
+        int hour = frame / 3600;
+        float secRot = second / 30f * (float) Math.PI;
+        float minRot = minute / 30f * (float) Math.PI;
+        float hrRot = ((hour + (minute / 60f)) / 6f) * (float) Math.PI;
+        endpoints(blackhole, secRot, CENTER - 28);
+        endpoints(blackhole, minRot, CENTER - 40);
+        endpoints(blackhole, hrRot, CENTER - 80);
+    }
+
+    @Benchmark
+    public void secondMarker(Blackhole blackhole) {
+        int second = nextTick() % 60;
+        float secRot = second / 30f * (float) Math.PI;
+        blackhole.consume(getX(CENTER, CENTER - 20, secRot));
+        blackhole.consume(getY(CENTER, CENTER - 20, secRot));
+        blackhole.consume(getX(CENTER, CENTER - 5, secRot));
+        blackhole.consume(getY(CENTER, CENTER - 5, secRot));
+    }
+
+    @Benchmark
+    public void handEndpointsTable(Blackhole blackhole) {
+        int frame = nextTick();
+        int second = frame % 60;
+        int minute = frame / 60 % 60;
+        int hour = frame / 3600;
+        mSecondHand.setTick(second);
+        mMinuteHand.setTick(minute);
+        mHourHand.setHour(hour, minute);
+        endpoints(blackhole, mSecondHand, CENTER - 28);
+        endpoints(blackhole, mMinuteHand, CENTER - 40);
+        endpoints(blackhole, mHourHand, CENTER - 80);
+    }
+
+    @Benchmark
+    public void secondMarkerTable(Blackhole blackhole) {
+        mSecondHand.setTick(nextTick() % 60);
+        blackhole.consume(mSecondHand.getX(CENTER, CENTER - 20));
+        blackhole.consume(mSecondHand.getY(CENTER, CENTER - 20));
+        blackhole.consume(mSecondHand.getX(CENTER, CENTER - 5));
+        blackhole.consume(mSecondHand.getY(CENTER, CENTER - 5));
+    }
+
+    /** A sweeping second hand at 60 frames per second. */
+    @Benchmark
+    public void sweep(Blackhole blackhole) {
+        int millisOfMinute = nextSweepFrame() * 16;
+        endpoints(blackhole, millisOfMinute / 30000f * (float) Math.PI, CENTER - 28);
+    }
+
+    @Benchmark
+    public void sweepTable(Blackhole blackhole) {
+        mSecondHand.setSweep(nextSweepFrame() * 16);
+        endpoints(blackhole, mSecondHand, CENTER - 28);
+    }
+
+    /** Seconds into the day, one more per call. */
+    private int nextTick() {
+        mFrame = (mFrame + 1) % SECONDS_PER_DAY;
+        return mFrame;
+    }
+
+    /** Sweep frames into the minute, one more per call. */
+    private int nextSweepFrame() {
+        mFrame = (mFrame + 1) % SWEEP_FRAMES;
+        return mFrame;
+    }
+
+    private static void endpoints(Blackhole blackhole, HandGeometry hand, float length) {
+        blackhole.consume(hand.getX(0, length));
+        blackhole.consume(hand.getY(0, length));
+        blackhole.consume(hand.getX(0, TAIL));
+        blackhole.consume(hand.getY(0, TAIL));
+    }
+
+    private static void endpoints(Blackhole blackhole, float rot, float length) {
+        blackhole.consume((float) Math.sin(rot) * length);
+        blackhole.consume((float) -Math.cos(rot) * length);
+        blackhole.consume((float) Math.sin(rot) * TAIL);
+        blackhole.consume((float) -Math.cos(rot) * TAIL);
+    }
+
+    private static float getX(float centerX, float length, float angle) {
+        return centerX + (float) (length * Math.sin(angle));
+    }
+
+    private static float getY(float centerY, float length, float angle) {
+        return centerY - (float) (length * Math.cos(angle));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.DrawTarget;
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.Ink;
+import com.pivolve.piwatch.face.InkStyle;
+import com.pivolve.piwatch.face.TextMeasurer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * {@link DrawTarget} that rasterizes into a Java2D {@link Graphics2D} with the
+ * {@link InkStyle}s of a theme, approximating what the Canvas backend draws. Text is drawn as
+ * a solid block of {@link #TEXT_ADVANCE} per character, so images don't depend on the fonts
+ * installed on the machine; the characters themselves are checked through the recorded draw
+ * calls instead.
+ */
+final class Java2DDrawTarget implements DrawTarget {
+    /** Width of a character of block text, as a share of the text size. */
+    static final float TEXT_ADVANCE = 0.5f;
+    /** Height of block text above the baseline, as a share of the text size. */
+    private static final float TEXT_ASCENT = 0.7f;
+
+    /** Measures text the way {@link #drawText} lays it out, for one ink. */
+    static TextMeasurer measurer(InkStyle style, FaceLayout layout) {
+        final float advance = layout.getTextSize(style) * TEXT_ADVANCE;
+        return new TextMeasurer() {
+            @Override
+            public float measureText(char[] text, int index, int count) {
+                return count * advance;
+            }
+        };
+    }
+
+    private final InkStyle[] mStyles;
+    private final float[] mTextSizes = new float[Ink.COUNT];
+    private final Color[] mColors = new Color[Ink.COUNT];
+    private final BasicStroke[] mStrokes = new BasicStroke[Ink.COUNT];
+    private Graphics2D mGraphics;
+
+    Java2DDrawTarget(InkStyle[] styles, FaceLayout layout) {
+        mStyles = styles;
+        for (int ink = 0; ink < Ink.COUNT; ink++) {
+            InkStyle style = styles[ink];
+            if (style == null) {
+                continue;
+            }
+            mColors[ink] = new Color(style.getColor(), true);
+            mTextSizes[ink] = layout.getTextSize(style);
+            float[] dash = style.isDashed()
+                    ? new float[]{style.getDashOn(), style.getDashOff()} : null;
+            mStrokes[ink] = new BasicStroke(layout.toPixels(style.getStrokeWidth()),
+                    cap(style.getCap()),
+                    BasicStroke.JOIN_MITER, 10f, dash, 0);
+        }
+    }
+
+    private static int cap(int cap) {
+        switch (cap) {
+            case InkStyle.CAP_ROUND:
+                return BasicStroke.CAP_ROUND;
+            case InkStyle.CAP_SQUARE:
+                return BasicStroke.CAP_SQUARE;
+            default:
+                return BasicStroke.CAP_BUTT;
+        }
+    }
+
+    void setGraphics(Graphics2D graphics) {
+        mGraphics = graphics;
+    }
+
+    private InkStyle use(int ink) {
+        InkStyle style = mStyles[ink];
+        if (style == null) {
+            throw new IllegalStateException("No style for ink " + ink);
+        }
+        mGraphics.setColor(mColors[ink]);
+        mGraphics.setStroke(mStrokes[ink]);
+        mGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, style.isAntiAlias()
+                ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        return style;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int ink) {
+        InkStyle style = use(ink);
+        Rectangle2D rect = new Rectangle2D.Float(left, top, right - left, bottom - top);
+        if (style.isOutline()) {
+            mGraphics.draw(rect);
+        } else {
+            mGraphics.fill(rect);
+        }
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        use(ink);
+        mGraphics.draw(new Line2D.Float(startX, startY, stopX, stopY));
+    }
+
+    @Override
+    public void drawLines(float[] pts, int ink) {
+        use(ink);
+        for (int i = 0; i + 3 < pts.length; i += 4) {
+            mGraphics.draw(new Line2D.Float(pts[i], pts[i + 1], pts[i + 2], pts[i + 3]));
+        }
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int ink) {
+        InkStyle style = use(ink);
+        float size = Math.max(1, mStrokes[ink].getLineWidth());
+        for (int i = 0; i + 1 < pts.length; i += 2) {
+            float x = pts[i] - size / 2;
+            float y = pts[i + 1] - size / 2;
+            if (style.getCap() == InkStyle.CAP_ROUND) {
+                mGraphics.fill(new Ellipse2D.Float(x, y, size, size));
+            } else {
+                mGraphics.fill(new Rectangle2D.Float(x, y, size, size));
+            }
+        }
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int ink) {
+        InkStyle style = use(ink);
+        Ellipse2D circle = new Ellipse2D.Float(cx - radius, cy - radius, 2 * radius, 2 * radius);
+        if (style.isOutline()) {
+            mGraphics.draw(circle);
+        } else {
+            mGraphics.fill(circle);
+        }
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+        use(ink);
+        float size = mTextSizes[ink];
+        float width = count * size * TEXT_ADVANCE;
+        float height = size * TEXT_ASCENT;
+        mGraphics.fill(new Rectangle2D.Float(x - width / 2, y - height, width, height));
+    }
+}
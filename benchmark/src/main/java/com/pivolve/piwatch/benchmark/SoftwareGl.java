@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.ShapeBatch;
+import com.pivolve.piwatch.face.ShapeShader;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Software stand-in for the GL backend, so its geometry can be checked on a machine without
+ * GL. Rasterizes the quads of a {@link ShapeBatch} pixel by pixel with
+ * {@link ShapeShader#coverage} and blends them like {@code GL_SRC_ALPHA,
+ * GL_ONE_MINUS_SRC_ALPHA}, and draws layer images where the device draws its textures.
+ */
+final class SoftwareGl {
+    /** Corners of a quad around its edge; the triangles are 0, 1, 2 and 2, 1, 3. */
+    private static final int[] OUTLINE = {0, 1, 3, 2};
+
+    private final float[] mXs = new float[4];
+    private final float[] mYs = new float[4];
+    private final BufferedImage mImage;
+    private final int[] mPixels;
+    private final int[] mLayerPixels;
+    private final int mWidth;
+    private final int mHeight;
+
+    SoftwareGl(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        mPixels = new int[width * height];
+        mLayerPixels = new int[width * height];
+    }
+
+    /**
+     * Draws a frame the way the device does: the dial layer, if any, then each batch, with
+     * the text layer, if any, for text batches.
+     */
+    BufferedImage drawFrame(ShapeBatch batch, BufferedImage dialLayer,
+            BufferedImage textLayer) {
+        if (dialLayer != null) {
+            drawLayer(dialLayer);
+        }
+        for (int i = 0; i < batch.getBatchCount(); i++) {
+            if (batch.getBatchType(i) == ShapeBatch.BATCH_SHAPES) {
+                drawQuads(batch.getVertices(), batch.getBatchStart(i),
+                        batch.getBatchQuadCount(i));
+            } else if (textLayer != null) {
+                drawLayer(textLayer);
+            }
+        }
+        mImage.setRGB(0, 0, mWidth, mHeight, mPixels, 0, mWidth);
+        return mImage;
+    }
+
+    private void drawLayer(BufferedImage layer) {
+        int[] pixels = mLayerPixels;
+        layer.getRGB(0, 0, mWidth, mHeight, pixels, 0, mWidth);
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            int alpha = argb >>> 24;
+            // Opaque and empty pixels come out the same as blended, only sooner.
+            if (alpha == 0xff) {
+                mPixels[i] = argb & 0xffffff;
+            } else if (alpha != 0) {
+                blend(i, argb, alpha / 255f);
+            }
+        }
+    }
+
+    private void drawQuads(float[] vertices, int first, int count) {
+        int stride = ShapeBatch.VERTEX_FLOATS;
+        for (int quad = first; quad < first + count; quad++) {
+            int base = quad * ShapeBatch.QUAD_FLOATS;
+            float[] xs = mXs;
+            float[] ys = mYs;
+            for (int i = 0; i < 4; i++) {
+                xs[i] = vertices[base + OUTLINE[i] * stride + ShapeBatch.ATTR_POSITION];
+                ys[i] = vertices[base + OUTLINE[i] * stride + ShapeBatch.ATTR_POSITION + 1];
+            }
+            int left = Math.max(0, (int) Math.floor(min(xs)));
+            int top = Math.max(0, (int) Math.floor(min(ys)));
+            int right = Math.min(mWidth - 1, (int) Math.ceil(max(xs)));
+            int bottom = Math.min(mHeight - 1, (int) Math.ceil(max(ys)));
+            int r = (int) (vertices[base + ShapeBatch.ATTR_COLOR] * 255 + 0.5f);
+            int g = (int) (vertices[base + ShapeBatch.ATTR_COLOR + 1] * 255 + 0.5f);
+            int b = (int) (vertices[base + ShapeBatch.ATTR_COLOR + 2] * 255 + 0.5f);
+            float alpha = vertices[base + ShapeBatch.ATTR_COLOR + 3];
+            int rgb = (r << 16) | (g << 8) | b;
+            for (int y = top; y <= bottom; y++) {
+                for (int x = left; x <= right; x++) {
+                    float px = x + 0.5f;
+                    float py = y + 0.5f;
+                    if (!inside(xs, ys, px, py)) {
+                        continue;
+                    }
+                    float coverage = ShapeShader.coverage(vertices, base, px, py);
+                    if (coverage > 0) {
+                        blend(y * mWidth + x, rgb, alpha * coverage);
+                    }
+                }
+            }
+        }
+    }
+
+    private void blend(int index, int rgb, float alpha) {
+        int dst = mPixels[index];
+        int out = 0;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            float src = (rgb >> shift) & 0xff;
+            float old = (dst >> shift) & 0xff;
+            out |= Math.round(src * alpha + old * (1 - alpha)) << shift;
+        }
+        mPixels[index] = out;
+    }
+
+    /** Whether a point is in a convex polygon, on the same side of every edge. */
+    private static boolean inside(float[] xs, float[] ys, float x, float y) {
+        boolean positive = false;
+        boolean negative = false;
+        for (int i = 0; i < xs.length; i++) {
+            int j = (i + 1) % xs.length;
+            float cross = (xs[j] - xs[i]) * (y - ys[i]) - (ys[j] - ys[i]) * (x - xs[i]);
+            positive |= cross > 0;
+            negative |= cross < 0;
+        }
+        return !(positive && negative);
+    }
+
+    private static float min(float[] values) {
+        float min = values[0];
+        for (float value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static float max(float[] values) {
+        float max = values[0];
+        for (float value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}
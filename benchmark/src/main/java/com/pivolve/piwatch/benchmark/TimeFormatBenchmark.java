@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.TimeState;
+import com.pivolve.piwatch.face.TimeText;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing the time fields and the {@code MM-dd} and {@code HH:mm} readouts once per
+ * frame.
+ * {@code android.text.format.Time} is not available off-device, so {@link String#format} stands
+ * in for the old {@code Time.format()} calls: both parse a pattern and build new strings on
+ * every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeFormatBenchmark {
+    private final TimeText mTimeText = new TimeText();
+    private final TimeState mTimeState = new TimeState(TimeZone.getTimeZone("Europe/Berlin"));
+    private int mFrame;
+    private long mTimeMillis = 1436868540000L;
+
+    @Benchmark
+    public void stringFormat(Blackhole blackhole) {
+        int minute = mFrame++ / 60 % 60;
+        blackhole.consume(String.format(Locale.US, "%02d-%02d", 7, 14));
+        blackhole.consume(String.format(Locale.US, "%02d:%02d", 10, minute));
+    }
+
+    /** Same minute as the previous frame, the common case at 1 Hz. */
+    @Benchmark
+    public void timeTextUnchanged(Blackhole blackhole) {
+        int minute = mFrame++ / 60 % 60;
+        blackhole.consume(mTimeText.update(7, 14, 10, minute));
+    }
+
+    /** A new minute on every call, the worst case. */
+    @Benchmark
+    public void timeTextChanged(Blackhole blackhole) {
+        int minute = mFrame++ % 60;
+        blackhole.consume(mTimeText.update(7, 14, 10, minute));
+    }
+
+    /** Advancing by a second: mostly the cheap path within a minute. */
+    @Benchmark
+    public boolean timeStateTicking() {
+        return mTimeState.set(mTimeMillis += 1000);
+    }
+
+    /** Advancing by a minute: a full recompute, including the zone lookup, on every call. */
+    @Benchmark
+    public boolean timeStateNewMinute() {
+        return mTimeState.set(mTimeMillis += 60 * 1000);
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.benchmark;
+
+import com.pivolve.piwatch.face.AmbientRenderer;
+import com.pivolve.piwatch.face.DataSnapshot;
+import com.pivolve.piwatch.face.DrawTarget;
+import com.pivolve.piwatch.face.FaceLayout;
+import com.pivolve.piwatch.face.FaceRenderer;
+import com.pivolve.piwatch.face.FaceState;
+import com.pivolve.piwatch.face.Ink;
+import com.pivolve.piwatch.face.InkStyle;
+import com.pivolve.piwatch.face.QuoteLayout;
+import com.pivolve.piwatch.face.RecordingDrawTarget;
+import com.pivolve.piwatch.face.ShapeBatch;
+import com.pivolve.piwatch.face.Theme;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Regression check for every render mode: draws the face headlessly at a fixed time on round
+ * and square surfaces, compares the draw operations of each frame exactly with a recorded
+ * listing and the rendered frame with a golden image, and checks the number of draw calls
+ * against fixed budgets. Run with {@code ./gradlew :benchmark:verifyGoldens}; after an
+ * intended visual change, regenerate the goldens with {@code ./gradlew :benchmark:updateGoldens}
+ * and review them. Allocations per frame are checked by {@code FrameAllocationTest} in :face.
+ *
+ * <p>The golden images are rendered with Java2D through {@link Java2DDrawTarget}, not with the
+ * Android canvas. They catch changes in what the renderers draw, and in the GL backend's
+ * geometry, but say nothing about how a device rasterizes the face.
+ *
+ * <p>Arguments: {@code [--update] <golden dir> <output dir>}. On a mismatch the actual image,
+ * a diff, or the actual operation listing is written to the output directory.
+ */
+public final class VerifyGoldens {
+    private static final String[] MODES = {"interactive", "ambient", "lowbit-ambient"};
+    /** Name, width, height, chin height and whether the screen is round. */
+    private static final Object[][] SURFACES = {
+            {"round-280", 280, 280, 0, true},
+            {"round-320-chin", 320, 320, 30, true},
+            {"round-400", 400, 400, 0, true},
+            {"round-480", 480, 480, 0, true},
+            {"square-280", 280, 280, 0, false},
+            {"square-320", 320, 320, 0, false},
+    };
+
+    /** 2015-07-14 10:09:45 UTC: hands apart, second marker drawn as a dot. */
+    private static final long TIME_MILLIS = 1436868585000L;
+    private static final char[] QUOTE =
+            "Was I a butterfly in my dream or am I the butterfly's dream? -Laotzi".toCharArray();
+    private static final String[] DATA = {"80%", "4213", "12:30 Lunch", "24C Clear"};
+
+    /** Draw calls per frame. Raise only when a new element is meant to be drawn. */
+    private static final int INTERACTIVE_DRAW_BUDGET = 19;
+    private static final int AMBIENT_DRAW_BUDGET = 5;
+    /** A channel may differ by this much before the pixel counts as different. */
+    private static final int CHANNEL_TOLERANCE = 48;
+    /**
+     * Share of pixels that may differ, for anti-aliasing differences between JVMs. Removing
+     * the minute dots changes 0.09% of the pixels at 480px, so this must stay well below.
+     */
+    private static final double PIXEL_TOLERANCE = 0.0005;
+    /** Distance in pixels the GL backend's edges may be off from the goldens. */
+    private static final int GL_EDGE_REACH = 1;
+    /**
+     * Share of pixels the GL backend may differ by. Java2D moves axis-aligned strokes onto
+     * pixel centres and the GL backend doesn't, which changes up to 0.12% of an ambient
+     * frame. What is drawn is checked exactly by the operation listings.
+     */
+    private static final double GL_PIXEL_TOLERANCE = 0.0015;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final FaceRenderer mRenderer = new FaceRenderer();
+    private final AmbientRenderer mAmbientRenderer = new AmbientRenderer();
+    private final FaceState mState = new FaceState();
+    private final RecordingDrawTarget mRecorder = new RecordingDrawTarget();
+    private final List<String> mFailures = new ArrayList<String>();
+
+    private VerifyGoldens() {
+        mState.time.setZone(TimeZone.getTimeZone("UTC"));
+        char[][] texts = new char[DATA.length][];
+        for (int i = 0; i < DATA.length; i++) {
+            texts[i] = DATA[i].toCharArray();
+        }
+        mState.data = DataSnapshot.EMPTY.withTexts(texts);
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean update = args.length > 0 && "--update".equals(args[0]);
+        int first = update ? 1 : 0;
+        if (args.length - first != 2) {
+            System.err.println("Usage: VerifyGoldens [--update] <golden dir> <output dir>");
+            System.exit(2);
+        }
+        File goldenDir = new File(args[first]);
+        File outDir = new File(args[first + 1]);
+
+        VerifyGoldens verify = new VerifyGoldens();
+        for (Object[] surface : SURFACES) {
+            for (String mode : MODES) {
+                verify.checkCase(mode, (String) surface[0], (Integer) surface[1],
+                        (Integer) surface[2], (Integer) surface[3], (Boolean) surface[4],
+                        goldenDir, outDir, update);
+            }
+        }
+
+        for (String failure : verify.mFailures) {
+            System.err.println("FAIL " + failure);
+        }
+        if (!verify.mFailures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private FaceLayout setUp(String mode, int width, int height, int chinHeight) {
+        FaceLayout layout = FaceLayout.obtain(mRenderer.getLayout(), width, height, chinHeight,
+                1);
+        mRenderer.setLayout(layout);
+        mAmbientRenderer.setLayout(layout);
+        mAmbientRenderer.setBurnInProtection(false);
+        mState.ambient = !"interactive".equals(mode);
+        mState.time.set(TIME_MILLIS);
+        return layout;
+    }
+
+    private void drawFrame(DrawTarget target) {
+        if (mState.ambient) {
+            mAmbientRenderer.draw(target, mState.time);
+        } else {
+            mRenderer.drawFrame(target, mState);
+        }
+    }
+
+    private void checkCase(String mode, String surface, int width, int height, int chinHeight,
+            boolean round, File goldenDir, File outDir, boolean update) throws IOException {
+        String name = mode + "-" + surface;
+        InkStyle[] styles = Theme.CLASSIC.getStyles(!"interactive".equals(mode),
+                "lowbit-ambient".equals(mode));
+        FaceLayout layout = setUp(mode, width, height, chinHeight);
+        // Only interactive frames show the quote, but lay it out the same way for every mode.
+        InkStyle quoteStyle = Theme.CLASSIC.getStyles(false, false)[Ink.QUOTE_TEXT];
+        mState.quote = QuoteLayout.create(QUOTE, Java2DDrawTarget.measurer(quoteStyle, layout),
+                layout.quoteWidth, 3, layout.quoteLineHeight);
+
+        mRecorder.reset();
+        drawFrame(mRecorder);
+        int budget = mState.ambient ? AMBIENT_DRAW_BUDGET : INTERACTIVE_DRAW_BUDGET;
+        if (mRecorder.getOperationCount() > budget) {
+            mFailures.add(name + ": " + mRecorder.getOperationCount()
+                    + " draw calls, budget " + budget);
+        }
+        String ops = mRecorder.toString();
+
+        BufferedImage actual = render(styles, layout, round);
+        File golden = new File(goldenDir, name + ".png");
+        File goldenOps = new File(goldenDir, name + ".ops.txt");
+        if (update) {
+            goldenDir.mkdirs();
+            ImageIO.write(actual, "png", golden);
+            writeText(goldenOps, ops);
+            System.out.println("Wrote " + golden + " and " + goldenOps);
+            return;
+        }
+        if (!golden.exists() || !goldenOps.exists()) {
+            mFailures.add(name + ": no golden image or operations in " + goldenDir);
+            return;
+        }
+        if (!ops.equals(readText(goldenOps))) {
+            outDir.mkdirs();
+            File actualOps = new File(outDir, name + ".ops.txt");
+            writeText(actualOps, ops);
+            mFailures.add(name + ": draw operations differ, see " + actualOps);
+        }
+        BufferedImage expected = ImageIO.read(golden);
+        checkImage(name, expected, actual, 0, PIXEL_TOLERANCE, outDir);
+        // The GL backend, through the software stand-in, has to match the same image. Its
+        // edges are computed rather than scan converted, so they may land a pixel off.
+        checkImage(name + "-gl", expected, renderGl(styles, layout, round), GL_EDGE_REACH,
+                GL_PIXEL_TOLERANCE, outDir);
+    }
+
+    /**
+     * @param reach how far, in pixels, a matching expected pixel may be from an actual one
+     * @param tolerance share of pixels that may differ
+     */
+    private void checkImage(String name, BufferedImage expected, BufferedImage actual,
+            int reach, double tolerance, File outDir) throws IOException {
+        int width = actual.getWidth();
+        int height = actual.getHeight();
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int different = compare(expected, actual, reach, diff);
+        double share = different / (double) (width * height);
+        if (share > tolerance) {
+            outDir.mkdirs();
+            ImageIO.write(actual, "png", new File(outDir, name + ".png"));
+            ImageIO.write(diff, "png", new File(outDir, name + "-diff.png"));
+            mFailures.add(String.format("%s: %.2f%% of pixels differ, see %s", name,
+                    share * 100, outDir));
+        } else {
+            System.out.println(String.format("OK %s: %d draw calls, %.2f%% of pixels differ",
+                    name, mRecorder.getOperationCount(), share * 100));
+        }
+    }
+
+    private BufferedImage render(InkStyle[] styles, FaceLayout layout, boolean round) {
+        BufferedImage image =
+                new BufferedImage(layout.width, layout.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        Java2DDrawTarget target = new Java2DDrawTarget(styles, layout);
+        target.setGraphics(graphics);
+        drawFrame(target);
+        // Masked with the hints of the last ink drawn, as the goldens were.
+        mask(graphics, layout, round);
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Renders the frame as the GL backend does: the static dial and the text are layers drawn
+     * by the platform, everything else goes through a {@link ShapeBatch}.
+     */
+    private BufferedImage renderGl(InkStyle[] styles, FaceLayout layout, boolean round) {
+        int width = layout.width;
+        int height = layout.height;
+        Java2DDrawTarget layerTarget = new Java2DDrawTarget(styles, layout);
+        BufferedImage dialLayer = null;
+        if (!mState.ambient) {
+            dialLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = dialLayer.createGraphics();
+            layerTarget.setGraphics(graphics);
+            mRenderer.drawStaticDial(layerTarget);
+            graphics.dispose();
+        }
+        BufferedImage textLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = textLayer.createGraphics();
+        layerTarget.setGraphics(graphics);
+
+        ShapeBatch batch = new ShapeBatch();
+        batch.setStyles(styles, layout);
+        batch.setTextTarget(layerTarget);
+        if (mState.ambient) {
+            mAmbientRenderer.draw(batch, mState.time);
+        } else {
+            mRenderer.drawMovingParts(batch, mState);
+        }
+        graphics.dispose();
+        BufferedImage image = new SoftwareGl(width, height).drawFrame(batch, dialLayer,
+                textLayer);
+        graphics = image.createGraphics();
+        mask(graphics, layout, round);
+        graphics.dispose();
+        return image;
+    }
+
+    private static void mask(Graphics2D graphics, FaceLayout layout, boolean round) {
+        if (round) {
+            // What the round screen leaves out.
+            Area mask = new Area(new Rectangle2D.Float(0, 0, layout.width, layout.height));
+            mask.subtract(new Area(new Ellipse2D.Float(0, 0, layout.width, layout.height)));
+            graphics.setColor(Color.BLACK);
+            graphics.fill(mask);
+        }
+    }
+
+    /**
+     * Returns the number of pixels that differ from every expected pixel within {@code reach},
+     * and marks them red in {@code diff}.
+     */
+    private static int compare(BufferedImage expected, BufferedImage actual, int reach,
+            BufferedImage diff) {
+        if (expected.getWidth() != actual.getWidth()
+                || expected.getHeight() != actual.getHeight()) {
+            return actual.getWidth() * actual.getHeight();
+        }
+        int different = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int b = actual.getRGB(x, y);
+                if (!matches(expected, x, y, reach, b)) {
+                    different++;
+                    diff.setRGB(x, y, 0xff0000);
+                } else {
+                    // Faint copy of the frame, to see where the differences are.
+                    diff.setRGB(x, y, (b >> 2) & 0x3f3f3f);
+                }
+            }
+        }
+        return different;
+    }
+
+    private static boolean matches(BufferedImage expected, int x, int y, int reach, int rgb) {
+        for (int ey = Math.max(0, y - reach);
+                ey <= Math.min(expected.getHeight() - 1, y + reach); ey++) {
+            for (int ex = Math.max(0, x - reach);
+                    ex <= Math.min(expected.getWidth() - 1, x + reach); ex++) {
+                int a = expected.getRGB(ex, ey);
+                if (channelDiff(a, rgb, 16) <= CHANNEL_TOLERANCE
+                        && channelDiff(a, rgb, 8) <= CHANNEL_TOLERANCE
+                        && channelDiff(a, rgb, 0) <= CHANNEL_TOLERANCE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int channelDiff(int a, int b, int shift) {
+        return Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff));
+    }
+
+    private static String readText(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+
+    private static void writeText(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(UTF_8));
+    }
+}
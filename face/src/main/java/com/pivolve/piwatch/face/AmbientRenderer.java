@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * Draws the face in ambient mode, where the watch spends most of its time and each frame is
+ * drawn once a minute. Only the background, the dial marks and the outlines of the hour and
+ * minute hands are drawn, in one call per ink: no second hand, text, cap fill or layer cache.
+ * The paints are the engine's ambient set, so on low-bit displays they can all be 1-bit and
+ * aliased without touching the interactive paints.
+ *
+ * <p>With burn-in protection, the hour ticks are left out and everything drawn is shifted by a
+ * few pixels every minute so that no pixel stays lit for long.
+ */
+public final class AmbientRenderer {
+    /** Largest distance the face is shifted in each direction for burn-in protection. */
+    public static final int BURN_IN_SHIFT = 4;
+
+    private final HandGeometry mMinuteHand = new HandGeometry();
+    private final HandGeometry mHourHand = new HandGeometry();
+    /** Outlines of both hands, three segments each. */
+    private final float[] mHands = new float[2 * 3 * 4];
+    private float[] mCardinalTicks;
+    private float[] mHourTicks;
+
+    private FaceLayout mLayout;
+    private boolean mBurnInProtection;
+
+    /** Shift the dial arrays were last offset by. */
+    private int mShiftX;
+    private int mShiftY;
+    private boolean mDialValid;
+
+    /** Sets the layout for the surface, the same one the interactive renderer uses. */
+    public void setLayout(FaceLayout layout) {
+        if (layout != mLayout) {
+            mLayout = layout;
+            mCardinalTicks = new float[layout.dial.getCardinalTicks().length];
+            mHourTicks = new float[layout.dial.getHourTicks().length];
+            mDialValid = false;
+        }
+    }
+
+    public void setBurnInProtection(boolean burnInProtection) {
+        mBurnInProtection = burnInProtection;
+    }
+
+    /** Draws a complete ambient frame. */
+    public void draw(DrawTarget target, TimeState time) {
+        FaceLayout layout = mLayout;
+        int shiftX = 0;
+        int shiftY = 0;
+        if (mBurnInProtection) {
+            // Walk a 3x3 grid of offsets, one step per minute.
+            int step = (time.getHour() * 60 + time.getMinute()) % 9;
+            shiftX = (step % 3 - 1) * BURN_IN_SHIFT;
+            shiftY = (step / 3 - 1) * BURN_IN_SHIFT;
+        }
+        if (!mDialValid || shiftX != mShiftX || shiftY != mShiftY) {
+            offset(layout.dial.getCardinalTicks(), mCardinalTicks, shiftX, shiftY);
+            offset(layout.dial.getHourTicks(), mHourTicks, shiftX, shiftY);
+            mShiftX = shiftX;
+            mShiftY = shiftY;
+            mDialValid = true;
+        }
+
+        target.drawRect(0, 0, layout.width, layout.height, Ink.BACKGROUND);
+        target.drawLines(mCardinalTicks, Ink.CARDINAL_AMBIENT);
+        if (!mBurnInProtection) {
+            target.drawLines(mHourTicks, Ink.HOUR_TICK);
+        }
+
+        float centerX = layout.centerX + shiftX;
+        float centerY = layout.centerY + shiftY;
+        mMinuteHand.setTick(time.getMinute());
+        mHourHand.setHour(time.getHour(), time.getMinute());
+        outlineHand(mHands, 0, centerX, centerY, mMinuteHand, layout.handTail,
+                layout.minuteHandLength, layout.minuteHandHalfWidth);
+        outlineHand(mHands, 12, centerX, centerY, mHourHand, layout.handTail,
+                layout.hourHandLength, layout.hourHandHalfWidth);
+        target.drawLines(mHands, Ink.HOUR_HAND);
+        target.drawCircle(centerX, centerY, layout.handCapRadius, Ink.HOUR_HAND);
+    }
+
+    /**
+     * Writes the outline of a hand as a triangle from the two corners of its base, at the
+     * tail circle, to its tip: three line segments starting at {@code offset}.
+     */
+    private static void outlineHand(float[] out, int offset, float centerX, float centerY,
+            HandGeometry hand, float tail, float length, float halfWidth) {
+        float baseX = hand.getX(centerX, tail);
+        float baseY = hand.getY(centerY, tail);
+        // Perpendicular to the hand.
+        float normalX = hand.getCos() * halfWidth;
+        float normalY = hand.getSin() * halfWidth;
+        float leftX = baseX - normalX;
+        float leftY = baseY - normalY;
+        float rightX = baseX + normalX;
+        float rightY = baseY + normalY;
+        float tipX = hand.getX(centerX, length);
+        float tipY = hand.getY(centerY, length);
+
+        out[offset] = leftX;
+        out[offset + 1] = leftY;
+        out[offset + 2] = tipX;
+        out[offset + 3] = tipY;
+        out[offset + 4] = tipX;
+        out[offset + 5] = tipY;
+        out[offset + 6] = rightX;
+        out[offset + 7] = rightY;
+        out[offset + 8] = rightX;
+        out[offset + 9] = rightY;
+        out[offset + 10] = leftX;
+        out[offset + 11] = leftY;
+    }
+
+    private static void offset(float[] points, float[] out, float dx, float dy) {
+        for (int i = 0; i < points.length; i += 2) {
+            out[i] = points[i] + dx;
+            out[i + 1] = points[i + 1] + dy;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * Source of time for {@link TickScheduler}. On the watch this is {@code SystemClock} and
+ * {@code System}; elsewhere it can be a clock that only moves when told to, so scheduling can
+ * be checked deterministically.
+ */
+public interface Clock {
+    /** Monotonic time in milliseconds, on the same time base the alarms are scheduled on. */
+    long uptimeMillis();
+
+    /** Wall time in milliseconds since the epoch. May jump when the user or network sets it. */
+    long currentTimeMillis();
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/**
+ * Works out which part of the face has to be redrawn between two frames. Within a minute in
+ * interactive mode only the second hand and the second marker move, so only the area they
+ * covered in the last frame and will cover in the next one needs repainting. Anything else
+ * (a new minute, a mode change, a new quote, new complication data, a new surface) needs a
+ * full frame.
+ */
+public final class DamageTracker {
+    private final float[] mLastBounds = new float[4];
+    private final float[] mBounds = new float[4];
+
+    private boolean mValid;
+    private boolean mLastAmbient;
+    private FaceLayout mLastLayout;
+    private int mLastHour;
+    private int mLastMinute;
+    private QuoteLayout mLastQuote;
+    private DataSnapshot mLastData;
+
+    /** Forces the next frame to be drawn in full. */
+    public void invalidate() {
+        mValid = false;
+    }
+
+    /** Records a frame that was drawn, fully or partially. */
+    public void onFrameDrawn(FaceRenderer renderer, FaceState state, float padding) {
+        renderer.getSecondHandBounds(state, padding, mLastBounds);
+        mLastAmbient = state.ambient;
+        mLastLayout = renderer.getLayout();
+        mLastHour = state.time.getHour();
+        mLastMinute = state.time.getMinute();
+        mLastQuote = state.quote;
+        mLastData = state.data;
+        mValid = true;
+    }
+
+    /**
+     * Returns whether the next frame can be drawn partially and, if so, the region to redraw.
+     *
+     * @param out receives left, top, right and bottom, rounded outwards to whole pixels and
+     *            clipped to the surface
+     */
+    public boolean getDamage(FaceRenderer renderer, FaceState state, float padding, int[] out) {
+        TimeState time = state.time;
+        if (!mValid || state.ambient || mLastAmbient
+                || renderer.getLayout() != mLastLayout
+                || time.getHour() != mLastHour || time.getMinute() != mLastMinute
+                || state.quote != mLastQuote || state.data != mLastData) {
+            return false;
+        }
+        renderer.getSecondHandBounds(state, padding, mBounds);
+        FaceLayout layout = mLastLayout;
+        out[0] = Math.max(0, (int) Math.floor(Math.min(mBounds[0], mLastBounds[0])));
+        out[1] = Math.max(0, (int) Math.floor(Math.min(mBounds[1], mLastBounds[1])));
+        out[2] = Math.min(layout.width, (int) Math.ceil(Math.max(mBounds[2], mLastBounds[2])));
+        out[3] = Math.min(layout.height, (int) Math.ceil(Math.max(mBounds[3], mLastBounds[3])));
+        return out[0] < out[2] && out[1] < out[3];
+    }
+}
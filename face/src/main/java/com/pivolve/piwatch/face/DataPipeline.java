@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+import java.util.TimeZone;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Collects the data shown in complications (battery, steps, next event, weather) and the time
+ * zone, away from the render thread. Sources are read on a background executor in one pass,
+ * each at its own interval; a pass that changed anything publishes a single new
+ * {@link DataSnapshot}. The render thread picks up the latest snapshot when it draws its next
+ * frame, so new data never triggers a redraw of its own and shows up on the next tick.
+ *
+ * <p>{@link #setSource} must be called before {@link #start}; everything else may be called
+ * from any thread.
+ */
+public final class DataPipeline {
+    public static final int BATTERY = 0;
+    public static final int STEPS = 1;
+    public static final int NEXT_EVENT = 2;
+    public static final int WEATHER = 3;
+    public static final int SLOT_COUNT = 4;
+
+    /** Reads one piece of data. */
+    public interface Source {
+        /**
+         * Returns the text to show, or null if there is nothing to show. Called on the
+         * pipeline's executor. If it throws, the slot keeps its previous text.
+         */
+        String read() throws Exception;
+    }
+
+    private final ScheduledExecutorService mExecutor;
+    private final Clock mClock;
+    private final AtomicReference<DataSnapshot> mSnapshot =
+            new AtomicReference<DataSnapshot>(DataSnapshot.EMPTY);
+
+    private final Source[] mSources = new Source[SLOT_COUNT];
+    private final long[] mIntervals = new long[SLOT_COUNT];
+    /** Uptime of the next read of each source. Only used by the poll, one run at a time. */
+    private final long[] mNextReads = new long[SLOT_COUNT];
+
+    private final Runnable mPoll = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+    private ScheduledFuture<?> mPolling;
+
+    public DataPipeline(ScheduledExecutorService executor, Clock clock) {
+        mExecutor = executor;
+        mClock = clock;
+    }
+
+    /** Reads {@code slot} from {@code source} at most every {@code intervalMillis}. */
+    public void setSource(int slot, Source source, long intervalMillis) {
+        mSources[slot] = source;
+        mIntervals[slot] = intervalMillis;
+    }
+
+    /** Starts checking every {@code pollMillis} for sources that are due, beginning now. */
+    public synchronized void start(long pollMillis) {
+        if (mPolling == null) {
+            mPolling = mExecutor.scheduleWithFixedDelay(mPoll, 0, pollMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (mPolling != null) {
+            mPolling.cancel(false);
+            mPolling = null;
+        }
+    }
+
+    /** Publishes a new time zone. It takes effect with the next frame. */
+    public void setTimeZone(TimeZone timeZone) {
+        DataSnapshot current;
+        do {
+            current = mSnapshot.get();
+        } while (!mSnapshot.compareAndSet(current, current.withTimeZone(timeZone)));
+    }
+
+    /** Returns the latest snapshot. The same instance is returned until something changes. */
+    public DataSnapshot getSnapshot() {
+        return mSnapshot.get();
+    }
+
+    private void refresh() {
+        long now = mClock.uptimeMillis();
+        char[][] texts = null;
+        DataSnapshot snapshot = mSnapshot.get();
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            Source source = mSources[slot];
+            if (source == null || now < mNextReads[slot]) {
+                continue;
+            }
+            mNextReads[slot] = now + mIntervals[slot];
+            String value;
+            try {
+                value = source.read();
+            } catch (Exception e) {
+                continue;
+            }
+            if (sameText(snapshot.getText(slot), value)) {
+                continue;
+            }
+            if (texts == null) {
+                texts = new char[SLOT_COUNT][];
+                for (int i = 0; i < SLOT_COUNT; i++) {
+                    texts[i] = snapshot.getText(i);
+                }
+            }
+            texts[slot] = value == null ? null : value.toCharArray();
+        }
+        if (texts != null) {
+            publish(texts);
+        }
+    }
+
+    private static boolean sameText(char[] text, String value) {
+        if (text == null || value == null) {
+            return text == null && value == null;
+        }
+        if (text.length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length; i++) {
+            if (text[i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Swaps in the new texts, keeping a time zone that was set concurrently. */
+    private void publish(char[][] texts) {
+        DataSnapshot current;
+        do {
+            current = mSnapshot.get();
+        } while (!mSnapshot.compareAndSet(current, current.withTexts(texts)));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+import java.util.TimeZone;
+
+/**
+ * The complication data and time zone published by a {@link DataPipeline} at one moment.
+ * Immutable, so the render thread can use it without locking while the pipeline builds the
+ * next one. Texts are ready to draw; a slot without data is null.
+ */
+public final class DataSnapshot {
+    /** No data yet, and no time zone change. */
+    public static final DataSnapshot EMPTY =
+            new DataSnapshot(new char[DataPipeline.SLOT_COUNT][], null);
+
+    private final char[][] mTexts;
+    private final TimeZone mTimeZone;
+
+    private DataSnapshot(char[][] texts, TimeZone timeZone) {
+        mTexts = texts;
+        mTimeZone = timeZone;
+    }
+
+    /** Returns the text for a {@link DataPipeline} slot, or null. Must not be modified. */
+    public char[] getText(int slot) {
+        return mTexts[slot];
+    }
+
+    /** The time zone to show the time in, or null to keep the current one. */
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /** Returns a copy with the given texts, one per slot. */
+    public DataSnapshot withTexts(char[][] texts) {
+        return new DataSnapshot(texts.clone(), mTimeZone);
+    }
+
+    DataSnapshot withTimeZone(TimeZone timeZone) {
+        return new DataSnapshot(mTexts, timeZone);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/**
+ * Coordinates of the static dial (cardinal marks, hour ticks and minute dots) for one surface
+ * size, scaled like {@link FaceLayout}. Computed once when the surface changes so that drawing
+ * a frame does no trigonometry and allocates nothing for the dial. The arrays are shared with
+ * every frame and must not be modified by callers.
+ */
+public final class DialGeometry {
+    /** Length of the hour ticks, measured inwards from the edge of the dial. */
+    private static final float HOUR_TICK_LENGTH = 15f;
+    /** Distance of the minute dots from the edge of the dial. */
+    private static final float MINUTE_DOT_INSET = 10f;
+    /** Distance of the cardinal marks from the edge of the dial. */
+    private static final float CARDINAL_OUTER = 5f;
+    private static final float CARDINAL_INNER = 20f;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mChinHeight;
+
+    private final float[] mCardinalTicks;
+    private final float[] mHourTicks;
+    private final float[] mMinuteDots;
+
+    private DialGeometry(int width, int height, int chinHeight) {
+        mWidth = width;
+        mHeight = height;
+        mChinHeight = chinHeight;
+
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        float radius = FaceLayout.getRadius(width, height);
+        float scale = FaceLayout.getScale(width, height);
+        float cardinalOuter = CARDINAL_OUTER * scale;
+        float cardinalInner = CARDINAL_INNER * scale;
+        float top = centerY - radius;
+        float right = centerX + radius;
+        // Keep the bottom mark above the "chin" on flat-tire displays, where it would otherwise
+        // be drawn into the part of the screen that isn't there.
+        float bottom = Math.min(centerY + radius, height - chinHeight);
+        float left = centerX - radius;
+
+        mCardinalTicks = new float[]{
+                centerX, top + cardinalOuter, centerX, top + cardinalInner,
+                right - cardinalOuter, centerY, right - cardinalInner, centerY,
+                centerX, bottom - cardinalOuter, centerX, bottom - cardinalInner,
+                left + cardinalOuter, centerY, left + cardinalInner, centerY
+        };
+
+        // One tick per hour, except 12, 3, 6 and 9 which get a cardinal mark instead.
+        mHourTicks = new float[8 * 4];
+        float innerRadius = radius - HOUR_TICK_LENGTH * scale;
+        int i = 0;
+        for (int hour = 1; hour < 12; hour++) {
+            if (hour % 3 == 0) {
+                continue;
+            }
+            double angle = Math.PI * hour / 6;
+            float sin = (float) Math.sin(angle);
+            float cos = (float) Math.cos(angle);
+            mHourTicks[i++] = centerX + radius * sin;
+            mHourTicks[i++] = centerY - radius * cos;
+            mHourTicks[i++] = centerX + innerRadius * sin;
+            mHourTicks[i++] = centerY - innerRadius * cos;
+        }
+
+        // One dot per minute, except on the five minute marks.
+        mMinuteDots = new float[48 * 2];
+        float dotRadius = radius - MINUTE_DOT_INSET * scale;
+        i = 0;
+        for (int minute = 1; minute < 60; minute++) {
+            if (minute % 5 == 0) {
+                continue;
+            }
+            double angle = Math.PI * minute / 30;
+            mMinuteDots[i++] = centerX + dotRadius * (float) Math.sin(angle);
+            mMinuteDots[i++] = centerY - dotRadius * (float) Math.cos(angle);
+        }
+    }
+
+    /**
+     * Returns {@code previous} if it was computed for the same surface, or a newly computed
+     * geometry otherwise.
+     */
+    public static DialGeometry obtain(DialGeometry previous, int width, int height,
+            int chinHeight) {
+        if (previous != null && previous.matches(width, height, chinHeight)) {
+            return previous;
+        }
+        return new DialGeometry(width, height, chinHeight);
+    }
+
+    public boolean matches(int width, int height, int chinHeight) {
+        return mWidth == width && mHeight == height && mChinHeight == chinHeight;
+    }
+
+    /** Line segments for the 12, 3, 6 and 9 o'clock marks, in {@code drawLines} format. */
+    public float[] getCardinalTicks() {
+        return mCardinalTicks;
+    }
+
+    /** Line segments for the remaining hour marks, in {@code drawLines} format. */
+    public float[] getHourTicks() {
+        return mHourTicks;
+    }
+
+    /** Minute dots, in {@code drawPoints} format. */
+    public float[] getMinuteDots() {
+        return mMinuteDots;
+    }
+}
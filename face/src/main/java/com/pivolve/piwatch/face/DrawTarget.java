@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/**
+ * The drawing operations {@link FaceRenderer} needs. Every operation names one of the
+ * {@link Ink} styles instead of carrying a paint, so each backend resolves the styles to its own
+ * paint objects once. Arrays are in the same layout as the corresponding
+ * {@code android.graphics.Canvas} methods and are only read during the call.
+ */
+public interface DrawTarget {
+    void drawRect(float left, float top, float right, float bottom, int ink);
+
+    void drawLine(float startX, float startY, float stopX, float stopY, int ink);
+
+    void drawLines(float[] pts, int ink);
+
+    void drawPoints(float[] pts, int ink);
+
+    void drawCircle(float cx, float cy, float radius, int ink);
+
+    /** Draws {@code count} characters starting at {@code index}, centered on {@code x}. */
+    void drawText(char[] text, int index, int count, float x, float y, int ink);
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * Where everything on the face goes for one surface: hand lengths, radii, text baselines and
+ * the dial geometry, plus the conversion of {@link InkStyle} sizes to pixels. The face is
+ * designed on a {@value #REFERENCE_SIZE} pixel dial; distances and text sizes scale with the
+ * smaller side of the surface, stroke widths with the display density.
+ *
+ * <p>Computed once per surface change and read by the renderers as plain fields, so drawing a
+ * frame does no layout arithmetic. Instances are immutable.
+ */
+public final class FaceLayout {
+    /** Surface size, in pixels, the distances below were designed at. */
+    public static final int REFERENCE_SIZE = 320;
+
+    /** Distance from the center at which the hands start. */
+    private static final float HAND_TAIL = 17f;
+    /** Distances of the hand tips from the edge of the dial. */
+    private static final float SECOND_HAND_INSET = 28f;
+    private static final float MINUTE_HAND_INSET = 40f;
+    private static final float HOUR_HAND_INSET = 80f;
+    /** The second marker: a long tick on the quarters, a short one on the fives, else a dot. */
+    private static final float MARKER_OUTER_INSET = 5f;
+    private static final float MARKER_LONG_INSET = 20f;
+    private static final float MARKER_SHORT_INSET = 15f;
+    private static final float MARKER_DOT_INSET = 10f;
+    private static final float MARKER_DOT_RADIUS = 3f;
+    private static final float HOUR_CAP_RADIUS = 11f;
+    private static final float HAND_CAP_RADIUS = 8f;
+    /** Half the width of the base of the ambient hand outlines. */
+    private static final float MINUTE_HAND_HALF_WIDTH = 3f;
+    private static final float HOUR_HAND_HALF_WIDTH = 4f;
+    /** Text baselines, relative to the center. */
+    private static final float DATE_BASELINE = -67f;
+    private static final float TIME_BASELINE = -36f;
+    private static final float QUOTE_TOP = -18f;
+    private static final float QUOTE_LINE_HEIGHT = 19f;
+    /** Space kept clear on either side of the quote, where a round dial narrows. */
+    private static final float QUOTE_MARGIN = 40f;
+    /** Complications below the center: battery and steps side by side, then event, weather. */
+    private static final float DATA_TOP = 52f;
+    private static final float DATA_LINE_HEIGHT = 18f;
+    private static final float DATA_SIDE = 0.22f;
+    /** Space between the last complication and the chin, clear of the bottom mark. */
+    private static final float DATA_BOTTOM_MARGIN = 24f;
+
+    public final int width;
+    public final int height;
+    public final int chinHeight;
+    /** Pixels per dp. */
+    public final float density;
+    /** Size of the surface relative to {@link #REFERENCE_SIZE}. */
+    public final float scale;
+    public final DialGeometry dial;
+
+    public final float centerX;
+    public final float centerY;
+    public final float radius;
+
+    public final float handTail;
+    public final float secondHandLength;
+    public final float minuteHandLength;
+    public final float hourHandLength;
+    public final float minuteHandHalfWidth;
+    public final float hourHandHalfWidth;
+    public final float hourCapRadius;
+    public final float handCapRadius;
+
+    public final float markerOuter;
+    public final float markerLongInner;
+    public final float markerShortInner;
+    public final float markerDot;
+    public final float markerDotRadius;
+
+    public final float dateBaseline;
+    public final float timeBaseline;
+    /** Baseline of the first line of the quote. */
+    public final float quoteTop;
+    public final float quoteLineHeight;
+    public final float quoteWidth;
+
+    /** Baseline of the first row of complications. */
+    public final float dataTop;
+    public final float dataLineHeight;
+    /** Centers of the battery and steps readouts. */
+    public final float dataLeft;
+    public final float dataRight;
+
+    private FaceLayout(DialGeometry previousDial, int width, int height, int chinHeight,
+            float density) {
+        this.width = width;
+        this.height = height;
+        this.chinHeight = chinHeight;
+        this.density = density;
+        float s = getScale(width, height);
+        scale = s;
+        dial = DialGeometry.obtain(previousDial, width, height, chinHeight);
+
+        // Ignore the chin so that, on round watches with a "chin", the face is centered on the
+        // entire screen, not just the usable portion.
+        centerX = width / 2f;
+        centerY = height / 2f;
+        radius = getRadius(width, height);
+
+        handTail = HAND_TAIL * s;
+        secondHandLength = radius - SECOND_HAND_INSET * s;
+        minuteHandLength = radius - MINUTE_HAND_INSET * s;
+        hourHandLength = radius - HOUR_HAND_INSET * s;
+        minuteHandHalfWidth = MINUTE_HAND_HALF_WIDTH * s;
+        hourHandHalfWidth = HOUR_HAND_HALF_WIDTH * s;
+        hourCapRadius = HOUR_CAP_RADIUS * s;
+        handCapRadius = HAND_CAP_RADIUS * s;
+
+        markerOuter = radius - MARKER_OUTER_INSET * s;
+        markerLongInner = radius - MARKER_LONG_INSET * s;
+        markerShortInner = radius - MARKER_SHORT_INSET * s;
+        markerDot = radius - MARKER_DOT_INSET * s;
+        markerDotRadius = MARKER_DOT_RADIUS * s;
+
+        dateBaseline = centerY + DATE_BASELINE * s;
+        timeBaseline = centerY + TIME_BASELINE * s;
+        quoteTop = centerY + QUOTE_TOP * s;
+        quoteLineHeight = QUOTE_LINE_HEIGHT * s;
+        quoteWidth = Math.max(0, width - 2 * QUOTE_MARGIN * s);
+
+        dataLineHeight = DATA_LINE_HEIGHT * s;
+        // Move the complications up if a tall chin would cut the last row off.
+        dataTop = Math.min(centerY + DATA_TOP * s,
+                height - chinHeight - 2 * dataLineHeight - DATA_BOTTOM_MARGIN * s);
+        dataLeft = centerX - width * DATA_SIDE;
+        dataRight = centerX + width * DATA_SIDE;
+    }
+
+    /**
+     * Returns {@code previous} if it was computed for the same surface and density, or a newly
+     * computed layout otherwise.
+     */
+    public static FaceLayout obtain(FaceLayout previous, int width, int height, int chinHeight,
+            float density) {
+        if (previous != null && previous.width == width && previous.height == height
+                && previous.chinHeight == chinHeight && previous.density == density) {
+            return previous;
+        }
+        return new FaceLayout(previous != null ? previous.dial : null, width, height,
+                chinHeight, density);
+    }
+
+    /** Scale of a surface relative to {@link #REFERENCE_SIZE}. */
+    static float getScale(int width, int height) {
+        return Math.min(width, height) / (float) REFERENCE_SIZE;
+    }
+
+    /** Radius of the dial on a surface: half its smaller side. */
+    static float getRadius(int width, int height) {
+        return Math.min(width, height) / 2f;
+    }
+
+    /** Converts a stroke width of an {@link InkStyle} to pixels. */
+    public float toPixels(float dp) {
+        return dp * density;
+    }
+
+    /** Text size of a style on this surface, in pixels. */
+    public float getTextSize(InkStyle style) {
+        return style.getTextSize() * scale;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/**
+ * Draws the interactive watch face onto a {@link DrawTarget}, at the positions of a
+ * {@link FaceLayout}. Holds no platform state, so the same code renders on the watch and on a
+ * plain JVM. Ambient mode has its own {@link AmbientRenderer}.
+ *
+ * <p>The face is split in two: the static dial, which only depends on the surface and can be
+ * cached by the caller, and the moving parts (hands and text).
+ */
+public final class FaceRenderer {
+    private final HandGeometry mSecondHand = new HandGeometry();
+    private final HandGeometry mMinuteHand = new HandGeometry();
+    private final HandGeometry mHourHand = new HandGeometry();
+    private final HandGeometry mMarker = new HandGeometry();
+
+    private FaceLayout mLayout;
+
+    /** Sets the layout for the surface, from {@link FaceLayout#obtain}. */
+    public void setLayout(FaceLayout layout) {
+        mLayout = layout;
+    }
+
+    public FaceLayout getLayout() {
+        return mLayout;
+    }
+
+    /** Draws a complete frame. */
+    public void drawFrame(DrawTarget target, FaceState state) {
+        drawStaticDial(target);
+        drawMovingParts(target, state);
+    }
+
+    /** Draws the background, hour marks and minute dots. */
+    public void drawStaticDial(DrawTarget target) {
+        FaceLayout layout = mLayout;
+        DialGeometry dial = layout.dial;
+        target.drawRect(0, 0, layout.width, layout.height, Ink.BACKGROUND);
+        target.drawLines(dial.getCardinalTicks(), Ink.CARDINAL);
+        target.drawLines(dial.getHourTicks(), Ink.HOUR_TICK);
+        target.drawPoints(dial.getMinuteDots(), Ink.MINUTE_DOT);
+    }
+
+    /** Draws the hands, the second marker and the text. */
+    public void drawMovingParts(DrawTarget target, FaceState state) {
+        FaceLayout layout = mLayout;
+        float centerX = layout.centerX;
+        float centerY = layout.centerY;
+        float tail = layout.handTail;
+
+        TimeState time = state.time;
+        int second = time.getSecond();
+        HandGeometry marker = mMarker;
+        HandGeometry secHand = mSecondHand;
+        HandGeometry minHand = mMinuteHand;
+        HandGeometry hrHand = mHourHand;
+        marker.setTick(second);
+        secHand.setSweep(second * 1000 + time.getMillis());
+        minHand.setTick(time.getMinute());
+        hrHand.setHour(time.getHour(), time.getMinute());
+
+        float secLength = layout.secondHandLength;
+        target.drawLine(secHand.getX(centerX, tail), secHand.getY(centerY, tail),
+                secHand.getX(centerX, secLength), secHand.getY(centerY, secLength),
+                Ink.SECOND_HAND);
+
+        if (second % 5 == 0) {
+            float inner = second % 15 == 0 ? layout.markerLongInner : layout.markerShortInner;
+            float outer = layout.markerOuter;
+            target.drawLine(marker.getX(centerX, inner), marker.getY(centerY, inner),
+                    marker.getX(centerX, outer), marker.getY(centerY, outer),
+                    Ink.SECOND_MARKER);
+        } else {
+            float dot = layout.markerDot;
+            target.drawCircle(marker.getX(centerX, dot), marker.getY(centerY, dot),
+                    layout.markerDotRadius, Ink.MINUTE_DOT);
+        }
+
+        target.drawText(time.getDateText(), 0, TimeText.LENGTH, centerX, layout.dateBaseline,
+                Ink.DATE_TEXT);
+        target.drawText(time.getTimeText(), 0, TimeText.LENGTH, centerX, layout.timeBaseline,
+                Ink.TIME_TEXT);
+        QuoteLayout quote = state.quote;
+        if (quote != null) {
+            float y = layout.quoteTop;
+            for (int line = 0; line < quote.getLineCount(); line++) {
+                int start = quote.getLineStart(line);
+                target.drawText(quote.getText(), start, quote.getLineEnd(line) - start,
+                        centerX, y, Ink.QUOTE_TEXT);
+                y += quote.getLineHeight();
+            }
+        }
+        DataSnapshot data = state.data;
+        if (data != null) {
+            float y = layout.dataTop;
+            float lineHeight = layout.dataLineHeight;
+            drawData(target, data, DataPipeline.BATTERY, layout.dataLeft, y);
+            drawData(target, data, DataPipeline.STEPS, layout.dataRight, y);
+            drawData(target, data, DataPipeline.NEXT_EVENT, centerX, y + lineHeight);
+            drawData(target, data, DataPipeline.WEATHER, centerX, y + 2 * lineHeight);
+        }
+
+        float minLength = layout.minuteHandLength;
+        target.drawLine(minHand.getX(centerX, tail), minHand.getY(centerY, tail),
+                minHand.getX(centerX, minLength), minHand.getY(centerY, minLength),
+                Ink.MINUTE_HAND);
+
+        float hrLength = layout.hourHandLength;
+        target.drawLine(hrHand.getX(centerX, tail), hrHand.getY(centerY, tail),
+                hrHand.getX(centerX, hrLength), hrHand.getY(centerY, hrLength),
+                Ink.HOUR_HAND);
+
+        target.drawCircle(centerX, centerY, layout.hourCapRadius, Ink.HOUR_HAND);
+        target.drawCircle(centerX, centerY, layout.handCapRadius, Ink.HAND_CAP);
+    }
+
+    private static void drawData(DrawTarget target, DataSnapshot data, int slot, float x,
+            float y) {
+        char[] text = data.getText(slot);
+        if (text != null) {
+            target.drawText(text, 0, text.length, x, y, Ink.DATA_TEXT);
+        }
+    }
+
+    /**
+     * Computes the bounding box of what {@link #drawMovingParts} draws for the second hand and
+     * second marker in interactive mode.
+     *
+     * @param padding added on every side, to cover stroke width and anti-aliasing
+     * @param out receives left, top, right and bottom
+     */
+    public void getSecondHandBounds(FaceState state, float padding, float[] out) {
+        FaceLayout layout = mLayout;
+        float centerX = layout.centerX;
+        float centerY = layout.centerY;
+        TimeState time = state.time;
+        HandGeometry secHand = mSecondHand;
+        HandGeometry marker = mMarker;
+        secHand.setSweep(time.getSecond() * 1000 + time.getMillis());
+        marker.setTick(time.getSecond());
+
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            float length = i == 0 ? layout.handTail : layout.secondHandLength;
+            float x = secHand.getX(centerX, length);
+            float y = secHand.getY(centerY, length);
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x);
+            bottom = Math.max(bottom, y);
+        }
+
+        // The marker lies between its long inner end and the outer end, with the dot in
+        // between. Include the dot radius whichever marker is drawn.
+        float dotRadius = layout.markerDotRadius;
+        for (int i = 0; i < 2; i++) {
+            float length = i == 0 ? layout.markerLongInner : layout.markerOuter;
+            float x = marker.getX(centerX, length);
+            float y = marker.getY(centerY, length);
+            left = Math.min(left, x - dotRadius);
+            top = Math.min(top, y - dotRadius);
+            right = Math.max(right, x + dotRadius);
+            bottom = Math.max(bottom, y + dotRadius);
+        }
+
+        out[0] = left - padding;
+        out[1] = top - padding;
+        out[2] = right + padding;
+        out[3] = bottom + padding;
+    }
+}
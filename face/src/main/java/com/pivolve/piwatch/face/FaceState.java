@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import java.util.TimeZone;
+
+/**
+ * Everything that varies between two frames of the face. The engine fills one instance in
+ * before each frame.
+ */
+public final class FaceState {
+    public boolean ambient;
+
+    /**
+     * The time to show. Set it with {@link TimeState#set} before each frame, rounded down to the
+     * second for a ticking second hand or with the milliseconds for a sweeping one.
+     */
+    public final TimeState time = new TimeState(TimeZone.getDefault());
+
+    /** The quote shown below the time, or null for none. */
+    public QuoteLayout quote;
+
+    /** Complication data, from {@link DataPipeline#getSnapshot()}, or null for none. */
+    public DataSnapshot data;
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the frame rate for the sweeping second hand. The rate is the highest of
+ * {@link #RATES} that
+ * <ul>
+ * <li>the measured frame cost fits into, keeping drawing within the power budget (the share of
+ * each second the face may spend drawing), and</li>
+ * <li>has not recently missed its frame deadline. A few late frames in a row drop one rate;
+ * the rate only goes back up after a sustained run of frames that were on time.</li>
+ * </ul>
+ * A frame is late if it started vsyncs after the one it was scheduled for, e.g. because the
+ * main thread was busy, or if it finished after the next frame was due.
+ * Nothing is drawn by the scheduler while the face is hidden or in ambient mode.
+ */
+public final class FrameRatePolicy {
+    /** Supported frame rates, fastest first. */
+    public static final int[] RATES = {60, 30, 15, 1};
+
+    /** Consecutive late frames that make the policy drop one rate. */
+    private static final int LATE_FRAMES_TO_BACK_OFF = 3;
+    /** Seconds of on-time frames after which the policy tries the next faster rate. */
+    private static final int ON_TIME_SECONDS_TO_RECOVER = 5;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Half a vsync period at the fastest rate. A frame drawn on a vsync more than this after
+     * its target skipped at least one.
+     */
+    private static final long VSYNC_TOLERANCE_NANOS = NANOS_PER_SECOND / RATES[0] / 2;
+
+    private float mPowerBudget;
+    /** Index into {@link #RATES} of the fastest rate allowed after deadline misses. */
+    private int mCeiling;
+    /** Exponential moving average of the frame cost, in nanoseconds. */
+    private long mAverageCostNanos;
+    private int mLateFrames;
+    private int mOnTimeFrames;
+
+    /**
+     * @param powerBudget share of each second that may be spent drawing, between 0 and 1
+     */
+    public FrameRatePolicy(float powerBudget) {
+        mPowerBudget = powerBudget;
+    }
+
+    public void setPowerBudget(float powerBudget) {
+        mPowerBudget = powerBudget;
+    }
+
+    /**
+     * Forgets the measured frame cost and deadline history, e.g. when the surface changes and
+     * the old costs no longer apply.
+     */
+    public void reset() {
+        mCeiling = 0;
+        mAverageCostNanos = 0;
+        mLateFrames = 0;
+        mOnTimeFrames = 0;
+    }
+
+    /**
+     * Records a frame drawn at the current frame rate. All times are on the
+     * {@link System#nanoTime()} time base.
+     *
+     * @param targetNanos the vsync the frame was scheduled for
+     * @param frameTimeNanos the vsync the frame was drawn on. Frames that were not scheduled
+     *     on a vsync pass their start time for both.
+     * @param startNanos when drawing started
+     * @param endNanos when drawing finished
+     */
+    public void onFrameDrawn(long targetNanos, long frameTimeNanos, long startNanos,
+            long endNanos, int frameRate) {
+        long costNanos = endNanos - startNanos;
+        mAverageCostNanos = mAverageCostNanos == 0
+                ? costNanos : mAverageCostNanos + (costNanos - mAverageCostNanos) / 8;
+        if (frameRate <= 0) {
+            return;
+        }
+        boolean skippedVsyncs = frameTimeNanos - targetNanos > VSYNC_TOLERANCE_NANOS;
+        if (skippedVsyncs || endNanos - targetNanos > NANOS_PER_SECOND / frameRate) {
+            mOnTimeFrames = 0;
+            if (++mLateFrames >= LATE_FRAMES_TO_BACK_OFF && mCeiling < RATES.length - 1) {
+                mCeiling++;
+                mLateFrames = 0;
+            }
+        } else {
+            mLateFrames = 0;
+            if (++mOnTimeFrames >= ON_TIME_SECONDS_TO_RECOVER * frameRate && mCeiling > 0) {
+                mCeiling--;
+                mOnTimeFrames = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the frame rate to draw at, or 0 if the scheduler should not draw at all because
+     * the face is not visible or is in ambient mode.
+     */
+    public int getFrameRate(boolean visible, boolean ambient) {
+        if (!visible || ambient) {
+            return 0;
+        }
+        if (mPowerBudget <= 0) {
+            return 1;
+        }
+        long budgetNanos = (long) (NANOS_PER_SECOND * mPowerBudget);
+        for (int i = mCeiling; i < RATES.length; i++) {
+            int rate = RATES[i];
+            if (mAverageCostNanos * rate <= budgetNanos) {
+                return rate;
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frame timing collected on the watch: how long each frame takes to draw, how late the tick
+ * fires relative to the second it was scheduled for, when the display switches between
+ * ambient and interactive mode, and how long a new engine takes to get its first frames out.
+ * Samples go into fixed-size ring buffers that the drawing thread writes without locking and
+ * that {@link #dump} reads from any thread.
+ *
+ * <p>When disabled, every {@code record} method returns after reading one volatile field,
+ * except {@link Startup#record}: a startup is over before collection could be turned on, and
+ * only happens once per engine.
+ */
+public final class FrameStats {
+    /** Number of samples kept per series. Must be a power of two. */
+    public static final int CAPACITY = 512;
+
+    /** Startup milestones, see {@link Startup#record}. The first frame, with minimal paints. */
+    public static final int STARTUP_FIRST_FRAME = 0;
+    /** The deferred resources (typeface, quotes) were swapped in. */
+    public static final int STARTUP_RESOURCES_LOADED = 1;
+    /** The first frame drawn with all resources. */
+    public static final int STARTUP_FULL_FRAME = 2;
+    private static final String[] STARTUP_NAMES = {"first frame", "resources", "full frame"};
+
+    private final Ring mRenderNanos = new Ring(CAPACITY);
+    private final Ring mTickLatencyNanos = new Ring(CAPACITY);
+    /** Mode changes, as a timestamp in milliseconds shifted left once, plus 1 for ambient. */
+    private final Ring mModeChanges = new Ring(64);
+    private final AtomicLong mSkippedTicks = new AtomicLong();
+    /** Time to first frame of every startup, and the latest startup begun, if any. */
+    private final Ring mFirstFrameNanos = new Ring(64);
+    private volatile Startup mLastStartup;
+
+    private volatile boolean mEnabled;
+
+    public FrameStats(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /** Records the time taken to draw one frame. */
+    public void recordRender(long nanos) {
+        if (mEnabled) {
+            mRenderNanos.add(nanos);
+        }
+    }
+
+    /**
+     * Records how long after its target time a tick fired. Ticks later than a whole tick
+     * interval are also counted as skipped.
+     */
+    public void recordTickLatency(long latencyNanos, long intervalNanos) {
+        if (mEnabled) {
+            mTickLatencyNanos.add(latencyNanos);
+            if (latencyNanos >= intervalNanos) {
+                mSkippedTicks.addAndGet(latencyNanos / intervalNanos);
+            }
+        }
+    }
+
+    /** Records a switch to or from ambient mode at the given elapsed-realtime timestamp. */
+    public void recordModeChange(long timeMillis, boolean ambient) {
+        if (mEnabled) {
+            mModeChanges.add((timeMillis << 1) | (ambient ? 1 : 0));
+        }
+    }
+
+    /**
+     * Starts recording the startup of a new engine. Each engine records into its own
+     * {@link Startup}, so engines that overlap, such as the preview and the live face, don't
+     * overwrite each other's milestones. The dump shows the latest one begun.
+     */
+    public Startup beginStartup() {
+        Startup startup = new Startup();
+        mLastStartup = startup;
+        return startup;
+    }
+
+    /** Discards all samples. */
+    public void clear() {
+        mRenderNanos.clear();
+        mTickLatencyNanos.clear();
+        mModeChanges.clear();
+        mSkippedTicks.set(0);
+        mFirstFrameNanos.clear();
+    }
+
+    /**
+     * Prints percentile summaries of the samples. {@code nowMillis} is the current
+     * elapsed-realtime timestamp, used to show how long ago each mode change happened.
+     */
+    public void dump(PrintWriter out, String prefix, long nowMillis) {
+        out.print(prefix);
+        out.print("Frame stats (");
+        out.print(mEnabled ? "enabled" : "disabled");
+        out.println("):");
+        dumpSeries(out, prefix + "  render", mRenderNanos);
+        dumpSeries(out, prefix + "  tick latency", mTickLatencyNanos);
+        out.print(prefix);
+        out.print("  skipped ticks: ");
+        out.println(mSkippedTicks.get());
+        dumpSeries(out, prefix + "  time to first frame", mFirstFrameNanos);
+        out.print(prefix);
+        out.print("  last startup:");
+        Startup startup = mLastStartup;
+        for (int i = 0; i < STARTUP_NAMES.length; i++) {
+            long nanos = startup != null ? startup.mNanos.get(i) : -1;
+            out.print(' ');
+            out.print(STARTUP_NAMES[i]);
+            out.print('=');
+            out.print(nanos < 0 ? "-" : formatMicros(nanos));
+        }
+        out.println();
+
+        long[] changes = mModeChanges.snapshot();
+        out.print(prefix);
+        out.print("  mode changes: ");
+        out.println(mModeChanges.count());
+        for (long change : changes) {
+            out.print(prefix);
+            out.print("    -");
+            out.print(nowMillis - (change >> 1));
+            out.print("ms ");
+            out.println((change & 1) != 0 ? "ambient" : "interactive");
+        }
+    }
+
+    private static void dumpSeries(PrintWriter out, String name, Ring ring) {
+        long[] values = ring.snapshot();
+        out.print(name);
+        out.print(": n=");
+        out.print(ring.count());
+        if (values.length > 0) {
+            Arrays.sort(values);
+            out.print(" p50=");
+            out.print(formatMicros(percentile(values, 50)));
+            out.print(" p95=");
+            out.print(formatMicros(percentile(values, 95)));
+            out.print(" p99=");
+            out.print(formatMicros(percentile(values, 99)));
+            out.print(" max=");
+            out.print(formatMicros(values[values.length - 1]));
+        }
+        out.println();
+    }
+
+    /** Returns the given percentile of a sorted array. */
+    static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+    }
+
+    /** The startup milestones of one engine, from {@link #beginStartup}. */
+    public final class Startup {
+        private final AtomicLongArray mNanos = new AtomicLongArray(STARTUP_NAMES.length);
+
+        private Startup() {
+            for (int i = 0; i < mNanos.length(); i++) {
+                mNanos.set(i, -1);
+            }
+        }
+
+        /**
+         * Records that a startup milestone was reached, {@code nanos} after the engine was
+         * created. Only the first time each milestone is reached counts.
+         */
+        public void record(int milestone, long nanos) {
+            if (mNanos.compareAndSet(milestone, -1, nanos) && milestone == STARTUP_FIRST_FRAME) {
+                mFirstFrameNanos.add(nanos);
+            }
+        }
+    }
+
+    /** Single-writer ring of longs that can be read concurrently. */
+    private static final class Ring {
+        private final AtomicLongArray mValues;
+        private final AtomicLong mCount = new AtomicLong();
+        private final int mMask;
+
+        Ring(int capacity) {
+            mValues = new AtomicLongArray(capacity);
+            mMask = capacity - 1;
+        }
+
+        void add(long value) {
+            long index = mCount.get();
+            mValues.lazySet((int) (index & mMask), value);
+            mCount.lazySet(index + 1);
+        }
+
+        long count() {
+            return mCount.get();
+        }
+
+        void clear() {
+            mCount.set(0);
+        }
+
+        /** Copies the retained samples, oldest first. */
+        long[] snapshot() {
+            long count = mCount.get();
+            int size = (int) Math.min(count, mValues.length());
+            long[] values = new long[size];
+            long first = count - size;
+            for (int i = 0; i < size; i++) {
+                values[i] = mValues.get((int) ((first + i) & mMask));
+            }
+            return values;
+        }
+    }
+}
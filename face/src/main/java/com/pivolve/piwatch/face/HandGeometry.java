@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * Direction of one hand, looked up instead of computed. Every hand position the face shows is
+ * one of 720 steps around the dial: the hour hand moves a step per minute, and the minute and
+ * second hands 12 steps per minute or second. Their sines and cosines are tabulated once, in
+ * float, and a sweeping second hand interpolates linearly between neighbouring steps, which is
+ * off by less than 1/100 pixel at watch sizes. Setting a position and reading endpoints does no
+ * trigonometry and allocates nothing.
+ */
+public final class HandGeometry {
+    /** Steps per revolution. */
+    public static final int POSITIONS = 720;
+    private static final int POSITIONS_PER_TICK = POSITIONS / 60;
+
+    private static final float[] SIN = new float[POSITIONS];
+    private static final float[] COS = new float[POSITIONS];
+
+    static {
+        for (int i = 0; i < POSITIONS; i++) {
+            double angle = 2 * Math.PI * i / POSITIONS;
+            SIN[i] = (float) Math.sin(angle);
+            COS[i] = (float) Math.cos(angle);
+        }
+    }
+
+    private float mSin;
+    private float mCos;
+
+    /** Points the hand at one of the {@link #POSITIONS} steps, clockwise from 12 o'clock. */
+    public void setPosition(int position) {
+        mSin = SIN[position];
+        mCos = COS[position];
+    }
+
+    /** Points the hand at a second or minute mark, 0-59. */
+    public void setTick(int tick) {
+        setPosition(tick * POSITIONS_PER_TICK);
+    }
+
+    /** Points the hour hand, which moves on with each minute. */
+    public void setHour(int hour, int minute) {
+        setPosition(hour % 12 * 60 + minute);
+    }
+
+    /**
+     * Points the second hand at a moment within the minute, in milliseconds. Whole seconds land
+     * exactly on a table entry; in between, the direction is interpolated.
+     */
+    public void setSweep(int millisOfMinute) {
+        // A step is 250/3 ms, so scale by 3 to keep the fraction in integers.
+        int scaled = millisOfMinute * 3;
+        int index = scaled / 250;
+        float fraction = (scaled % 250) / 250f;
+        if (fraction == 0) {
+            setPosition(index);
+            return;
+        }
+        int next = index + 1 == POSITIONS ? 0 : index + 1;
+        mSin = SIN[index] + (SIN[next] - SIN[index]) * fraction;
+        mCos = COS[index] + (COS[next] - COS[index]) * fraction;
+    }
+
+    /** X of the point at {@code radius} from the center along the hand. */
+    public float getX(float centerX, float radius) {
+        return centerX + radius * mSin;
+    }
+
+    /** Y of the point at {@code radius} from the center along the hand. */
+    public float getY(float centerY, float radius) {
+        return centerY - radius * mCos;
+    }
+
+    /** Horizontal component of the hand's unit vector. */
+    public float getSin() {
+        return mSin;
+    }
+
+    /** Vertical component of the hand's unit vector, pointing up. */
+    public float getCos() {
+        return mCos;
+    }
+}
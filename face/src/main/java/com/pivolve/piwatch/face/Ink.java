@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/**
+ * Identifiers for the styles the face is drawn with. {@link DrawTarget} implementations keep
+ * one paint per identifier, indexed from 0 to {@link #COUNT} - 1.
+ */
+public final class Ink {
+    public static final int BACKGROUND = 0;
+    public static final int CARDINAL = 1;
+    public static final int CARDINAL_AMBIENT = 2;
+    public static final int HOUR_TICK = 3;
+    public static final int MINUTE_DOT = 4;
+    public static final int SECOND_MARKER = 5;
+    public static final int SECOND_HAND = 6;
+    public static final int MINUTE_HAND = 7;
+    public static final int HOUR_HAND = 8;
+    public static final int HAND_CAP = 9;
+    public static final int TIME_TEXT = 10;
+    public static final int DATE_TEXT = 11;
+    public static final int QUOTE_TEXT = 12;
+    public static final int DATA_TEXT = 13;
+
+    public static final int COUNT = 14;
+
+    private Ink() {
+    }
+}
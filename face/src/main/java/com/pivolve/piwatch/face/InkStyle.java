@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * How one {@link Ink} is drawn: colour, stroke and text settings, independent of any graphics
+ * API. Stroke widths are in dp and dash lengths in pixels; text sizes are in pixels on a
+ * {@value FaceLayout#REFERENCE_SIZE} pixel face, see {@link FaceLayout}. Immutable; the
+ * {@code with} methods return modified copies.
+ */
+public final class InkStyle {
+    public static final int CAP_BUTT = 0;
+    public static final int CAP_ROUND = 1;
+    public static final int CAP_SQUARE = 2;
+
+    private final int mColor;
+    private final float mStrokeWidth;
+    private final int mCap;
+    private final boolean mOutline;
+    private final boolean mAntiAlias;
+    private final float mTextSize;
+    private final boolean mFakeBold;
+    private final float mDashOn;
+    private final float mDashOff;
+
+    private InkStyle(int color, float strokeWidth, int cap, boolean outline, boolean antiAlias,
+            float textSize, boolean fakeBold, float dashOn, float dashOff) {
+        mColor = color;
+        mStrokeWidth = strokeWidth;
+        mCap = cap;
+        mOutline = outline;
+        mAntiAlias = antiAlias;
+        mTextSize = textSize;
+        mFakeBold = fakeBold;
+        mDashOn = dashOn;
+        mDashOff = dashOff;
+    }
+
+    /** Filled shapes, e.g. the background. */
+    public static InkStyle fill(int color) {
+        return new InkStyle(color, 0, CAP_BUTT, false, true, 0, false, 0, 0);
+    }
+
+    /** Lines and points of the given width. */
+    public static InkStyle stroke(int color, float widthDp, int cap) {
+        return new InkStyle(color, widthDp, cap, false, true, 0, false, 0, 0);
+    }
+
+    /** Text in the face's typeface, centered on its position. */
+    public static InkStyle text(int color, float sizePx) {
+        return new InkStyle(color, 0, CAP_BUTT, false, true, sizePx, false, 0, 0);
+    }
+
+    /** Draws circles and other shapes as outlines only. */
+    public InkStyle withOutline() {
+        return new InkStyle(mColor, mStrokeWidth, mCap, true, mAntiAlias, mTextSize, mFakeBold,
+                mDashOn, mDashOff);
+    }
+
+    public InkStyle withFakeBold() {
+        return new InkStyle(mColor, mStrokeWidth, mCap, mOutline, mAntiAlias, mTextSize, true,
+                mDashOn, mDashOff);
+    }
+
+    /** Dashes lines, {@code on} and {@code off} pixels at a time. */
+    public InkStyle withDash(float on, float off) {
+        return new InkStyle(mColor, mStrokeWidth, mCap, mOutline, mAntiAlias, mTextSize,
+                mFakeBold, on, off);
+    }
+
+    /**
+     * The style for low-bit ambient displays: no anti-aliasing, and each colour channel
+     * rounded to fully on or off.
+     */
+    public InkStyle forLowBit() {
+        int color = 0xff000000;
+        for (int shift = 0; shift < 24; shift += 8) {
+            if (((mColor >>> shift) & 0xff) >= 0x80) {
+                color |= 0xff << shift;
+            }
+        }
+        return new InkStyle(color, mStrokeWidth, mCap, mOutline, false, mTextSize, mFakeBold,
+                mDashOn, mDashOff);
+    }
+
+    /** Colour as ARGB. */
+    public int getColor() {
+        return mColor;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    /** One of the {@code CAP_} constants. */
+    public int getCap() {
+        return mCap;
+    }
+
+    public boolean isOutline() {
+        return mOutline;
+    }
+
+    public boolean isAntiAlias() {
+        return mAntiAlias;
+    }
+
+    /** Text size in pixels, or 0 if the ink isn't used for text. */
+    public float getTextSize() {
+        return mTextSize;
+    }
+
+    public boolean isFakeBold() {
+        return mFakeBold;
+    }
+
+    public boolean isDashed() {
+        return mDashOn > 0;
+    }
+
+    public float getDashOn() {
+        return mDashOn;
+    }
+
+    public float getDashOff() {
+        return mDashOff;
+    }
+}
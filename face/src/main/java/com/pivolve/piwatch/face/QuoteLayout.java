@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * A quote broken into lines that fit the dial, measured once when the quote is chosen rather
+ * than on every frame. Lines break between words; a word wider than a whole line is broken
+ * between characters, and text that doesn't fit in the allowed lines ends in an ellipsis.
+ */
+public final class QuoteLayout {
+    private static final char[] ELLIPSIS = {'.', '.', '.'};
+
+    private final char[] mText;
+    private final int[] mStarts;
+    private final int[] mEnds;
+    private final int mLineCount;
+    private final float mLineHeight;
+
+    private QuoteLayout(char[] text, int[] starts, int[] ends, int lineCount, float lineHeight) {
+        mText = text;
+        mStarts = starts;
+        mEnds = ends;
+        mLineCount = lineCount;
+        mLineHeight = lineHeight;
+    }
+
+    /**
+     * Breaks {@code text} into at most {@code maxLines} lines no wider than {@code maxWidth}.
+     * The layout may keep {@code text}, so it must not be modified afterwards.
+     */
+    public static QuoteLayout create(char[] text, TextMeasurer measurer, float maxWidth,
+            int maxLines, float lineHeight) {
+        int[] starts = new int[maxLines];
+        int[] ends = new int[maxLines];
+        int lines = 0;
+        int length = text.length;
+        int pos = skipSpaces(text, 0);
+        while (pos < length && lines < maxLines) {
+            int end = pos;
+            int next = pos;
+            while (next < length) {
+                int wordEnd = next;
+                while (wordEnd < length && text[wordEnd] != ' ') {
+                    wordEnd++;
+                }
+                if (measurer.measureText(text, pos, wordEnd - pos) > maxWidth) {
+                    break;
+                }
+                end = wordEnd;
+                next = skipSpaces(text, wordEnd);
+            }
+            if (end == pos) {
+                end = pos + 1;
+                while (end < length && text[end] != ' '
+                        && measurer.measureText(text, pos, end + 1 - pos) <= maxWidth) {
+                    end++;
+                }
+            }
+            starts[lines] = pos;
+            ends[lines] = end;
+            lines++;
+            pos = skipSpaces(text, end);
+        }
+        if (pos < length && lines > 0) {
+            text = ellipsize(text, starts[lines - 1], ends, lines - 1, measurer, maxWidth);
+        }
+        return new QuoteLayout(text, starts, ends, lines, lineHeight);
+    }
+
+    /**
+     * Returns a copy of the text cut after the given line, which gets an ellipsis. Words are
+     * dropped from the end of the line until the ellipsis fits, or characters if only one word
+     * is left.
+     */
+    private static char[] ellipsize(char[] text, int start, int[] ends, int line,
+            TextMeasurer measurer, float maxWidth) {
+        int end = ends[line];
+        char[] result = new char[end + ELLIPSIS.length];
+        System.arraycopy(text, 0, result, 0, end);
+        while (true) {
+            System.arraycopy(ELLIPSIS, 0, result, end, ELLIPSIS.length);
+            int count = end + ELLIPSIS.length - start;
+            if (end == start || measurer.measureText(result, start, count) <= maxWidth) {
+                break;
+            }
+            int space = end - 1;
+            while (space > start && result[space] != ' ') {
+                space--;
+            }
+            if (space > start) {
+                end = space;
+                while (end > start && result[end - 1] == ' ') {
+                    end--;
+                }
+            } else {
+                end--;
+            }
+        }
+        ends[line] = end + ELLIPSIS.length;
+        return result;
+    }
+
+    private static int skipSpaces(char[] text, int index) {
+        while (index < text.length && text[index] == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    /** The characters the lines index into. Must not be modified. */
+    public char[] getText() {
+        return mText;
+    }
+
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    public int getLineStart(int line) {
+        return mStarts[line];
+    }
+
+    public int getLineEnd(int line) {
+        return mEnds[line];
+    }
+
+    /** Distance between the baselines of two lines. */
+    public float getLineHeight() {
+        return mLineHeight;
+    }
+}
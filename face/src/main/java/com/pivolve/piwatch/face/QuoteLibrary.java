@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A file of quotes, one per line in UTF-8, read a quote at a time. The only thing kept in memory
+ * is a table of line offsets, built by {@link #buildIndex()} in one streaming pass that is meant
+ * to run on a background thread. The first quote can be read before the index is ready, so a
+ * large library doesn't delay the first frame.
+ */
+public final class QuoteLibrary {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final QuoteSource mSource;
+
+    /** Start offset of each line. Written before {@link #mCount} is published. */
+    private int[] mStarts = new int[0];
+    private volatile int mCount;
+
+    public QuoteLibrary(QuoteSource source) {
+        mSource = source;
+    }
+
+    /**
+     * Number of quotes, or 0 until {@link #buildIndex()} has finished. Quote 0 can be read
+     * either way, if the file isn't empty.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /** Scans the file once and records where each line starts. */
+    public void buildIndex() throws IOException {
+        long length = mSource.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Quote file too large: " + length);
+        }
+        int[] starts = new int[64];
+        int count = 0;
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long position = 0;
+        boolean lineStart = true;
+        while (position < length) {
+            int read = mSource.read(position, chunk, 0, chunk.length);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (lineStart) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                    }
+                    starts[count++] = (int) (position + i);
+                    lineStart = false;
+                }
+                if (chunk[i] == '\n') {
+                    lineStart = true;
+                }
+            }
+            position += read;
+        }
+        mStarts = starts;
+        mCount = count;
+    }
+
+    /** Reads one quote, without its line break. */
+    public char[] readQuote(int index) throws IOException {
+        int count = mCount;
+        if (index < 0 || index >= Math.max(count, 1)) {
+            throw new IndexOutOfBoundsException("Quote " + index + " of " + count);
+        }
+        long start = count == 0 ? 0 : mStarts[index];
+        byte[] line = new byte[256];
+        int length = 0;
+        long position = start;
+        while (true) {
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            int read = mSource.read(position, line, length, line.length - length);
+            if (read < 0) {
+                break;
+            }
+            int end = indexOf(line, length, length + read, (byte) '\n');
+            if (end >= 0) {
+                length = end;
+                break;
+            }
+            length += read;
+            position += read;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(line, 0, length);
+        CharBuffer chars = UTF_8.decode(bytes);
+        char[] quote = new char[chars.remaining()];
+        chars.get(quote);
+        return quote;
+    }
+
+    public void close() {
+        mSource.close();
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * Chooses the quote shown on the face and keeps it laid out. Quotes are read from the
+ * {@link QuoteLibrary} and laid out on a loader executor, the current one and the one after it
+ * ahead of time, and handed back on the main executor, so neither a frame nor a rotation ever
+ * waits on the file or on text measurement. A quote that isn't ready when it is wanted is
+ * swapped in when it is, and the {@link Listener} is told so the face can be redrawn.
+ *
+ * <p>Call from the thread the main executor runs on. The loader must run its tasks one at a
+ * time, in order, and the {@link TextMeasurer} must be safe to use from it.
+ */
+public final class QuoteProvider {
+    private static final char[] EMPTY = new char[0];
+
+    /** Told when the quote to draw changed without a call to {@link #rotate}. */
+    public interface Listener {
+        void onQuoteChanged();
+    }
+
+    private final QuoteLibrary mLibrary;
+    private final Executor mLoader;
+    private final Executor mMain;
+    private final Listener mListener;
+    private QuoteRotationPolicy mPolicy;
+
+    /** How quotes are laid out, or null until {@link #setLayout} has been called. */
+    private Spec mSpec;
+
+    /** The quote to show, and the one shown, which lags behind while the former is laid out. */
+    private int mCurrentIndex;
+    private int mShownIndex = -1;
+    private QuoteLayout mCurrent;
+    /** The quote the next rotation is expected to show, or -1; its layout once it's ready. */
+    private int mNextIndex = -1;
+    private QuoteLayout mNext;
+
+    public QuoteProvider(QuoteLibrary library, QuoteRotationPolicy policy, Executor loader,
+            Executor main, Listener listener) {
+        mLibrary = library;
+        mPolicy = policy;
+        mLoader = loader;
+        mMain = main;
+        mListener = listener;
+    }
+
+    public void setPolicy(QuoteRotationPolicy policy) {
+        mPolicy = policy;
+        mNextIndex = -1;
+        mNext = null;
+    }
+
+    /**
+     * Sets how quotes are measured and how much room they have. Discards the layouts made for
+     * the old settings and starts laying out the current quote again.
+     */
+    public void setLayout(TextMeasurer measurer, float maxWidth, int maxLines, float lineHeight) {
+        mSpec = new Spec(measurer, maxWidth, maxLines, lineHeight);
+        mShownIndex = -1;
+        mCurrent = null;
+        mNextIndex = -1;
+        mNext = null;
+        load(mCurrentIndex);
+    }
+
+    /** The quote to draw, or null until one has been laid out for the current layout. */
+    public QuoteLayout getCurrent() {
+        return mCurrent;
+    }
+
+    /**
+     * Moves on to the quote chosen by the rotation policy, and starts laying out the one after
+     * it. The new quote is shown straight away if it was prepared in time.
+     */
+    public void rotate(TimeState time) {
+        int index = mPolicy.nextQuote(mCurrentIndex, mLibrary.getCount(), time);
+        boolean requested = index == mNextIndex;
+        mCurrentIndex = index;
+        if (requested && mNext != null) {
+            mCurrent = mNext;
+            mShownIndex = index;
+        } else if (!requested && index != mShownIndex && mSpec != null) {
+            load(index);
+        }
+        prepareNext(time);
+    }
+
+    /** Starts laying out the quote the next {@link #rotate} is expected to show. */
+    public void prepareNext(TimeState time) {
+        if (mSpec == null) {
+            return;
+        }
+        int index = mPolicy.nextQuote(mCurrentIndex, mLibrary.getCount(), time);
+        if (index == mNextIndex) {
+            return;
+        }
+        mNextIndex = index;
+        if (index == mShownIndex) {
+            mNext = mCurrent;
+        } else {
+            mNext = null;
+            load(index);
+        }
+    }
+
+    private void load(final int index) {
+        final Spec spec = mSpec;
+        if (spec == null) {
+            return;
+        }
+        mLoader.execute(new Runnable() {
+            @Override
+            public void run() {
+                final QuoteLayout layout = spec.layout(mLibrary, index);
+                mMain.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(spec, index, layout);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onLoaded(Spec spec, int index, QuoteLayout layout) {
+        if (spec != mSpec) {
+            return;
+        }
+        if (index == mNextIndex) {
+            mNext = layout;
+        }
+        if (index == mCurrentIndex && index != mShownIndex) {
+            mCurrent = layout;
+            mShownIndex = index;
+            mListener.onQuoteChanged();
+        }
+    }
+
+    /** One set of layout settings, shared with the loader. */
+    private static final class Spec {
+        private final TextMeasurer mMeasurer;
+        private final float mMaxWidth;
+        private final int mMaxLines;
+        private final float mLineHeight;
+
+        Spec(TextMeasurer measurer, float maxWidth, int maxLines, float lineHeight) {
+            mMeasurer = measurer;
+            mMaxWidth = maxWidth;
+            mMaxLines = maxLines;
+            mLineHeight = lineHeight;
+        }
+
+        QuoteLayout layout(QuoteLibrary library, int index) {
+            char[] text;
+            try {
+                text = library.readQuote(index);
+            } catch (IOException e) {
+                text = EMPTY;
+            }
+            return QuoteLayout.create(text, mMeasurer, mMaxWidth, mMaxLines, mLineHeight);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * Decides which quote comes next. Consulted each time the face returns to interactive mode,
+ * and once more in advance so the next quote can be laid out before it is needed.
+ */
+public interface QuoteRotationPolicy {
+    /** Shows the quotes in file order, one step per rotation. */
+    QuoteRotationPolicy SEQUENTIAL = new QuoteRotationPolicy() {
+        @Override
+        public int nextQuote(int current, int count, TimeState time) {
+            return count == 0 ? 0 : (current + 1) % count;
+        }
+    };
+
+    /** Shows one quote per day of the year, the same all day. */
+    QuoteRotationPolicy DAILY = new QuoteRotationPolicy() {
+        @Override
+        public int nextQuote(int current, int count, TimeState time) {
+            if (count == 0) {
+                return 0;
+            }
+            int day = time.getYear() * 372 + time.getMonth() * 31 + time.getMonthDay();
+            return day % count;
+        }
+    };
+
+    /**
+     * Returns the index of the quote to show after {@code current}.
+     *
+     * @param count number of quotes known so far; 0 while the library is still being indexed,
+     *              when only quote 0 can be shown
+     */
+    int nextQuote(int current, int count, TimeState time);
+}
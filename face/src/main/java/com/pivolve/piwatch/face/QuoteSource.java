@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+import java.io.IOException;
+
+/**
+ * Random access to the bytes of a quote file. Reads may come from several threads at once.
+ */
+public interface QuoteSource {
+    /** Length of the file in bytes. */
+    long length();
+
+    /**
+     * Reads up to {@code length} bytes starting at {@code position}. Returns the number of
+     * bytes read, or -1 at the end of the file.
+     */
+    int read(long position, byte[] buffer, int offset, int length) throws IOException;
+
+    void close();
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import java.util.Arrays;
+
+/**
+ * A {@link DrawTarget} that records the operations it receives into flat primitive buffers.
+ * Used off-device to count draw calls and to compare frames. Recording only allocates when a
+ * buffer has to grow, so after the first frame it does not disturb allocation measurements.
+ */
+public final class RecordingDrawTarget implements DrawTarget {
+    public static final int OP_RECT = 0;
+    public static final int OP_LINE = 1;
+    public static final int OP_LINES = 2;
+    public static final int OP_POINTS = 3;
+    public static final int OP_CIRCLE = 4;
+    public static final int OP_TEXT = 5;
+    public static final int OP_COUNT = 6;
+
+    private static final String[] OP_NAMES = {
+            "rect", "line", "lines", "points", "circle", "text"
+    };
+
+    private final int[] mOpCounts = new int[OP_COUNT];
+
+    private int[] mOps = new int[64];
+    private int[] mInks = new int[64];
+    /** Start of each operation's arguments in {@link #mArgs}; the extra slot marks the end. */
+    private int[] mArgStarts = new int[65];
+    private float[] mArgs = new float[1024];
+    private int mOpCount;
+    private int mArgCount;
+
+    private char[] mChars = new char[256];
+    private int mCharCount;
+
+    /** Forgets everything recorded so far, keeping the buffers. */
+    public void reset() {
+        Arrays.fill(mOpCounts, 0);
+        mOpCount = 0;
+        mArgCount = 0;
+        mCharCount = 0;
+    }
+
+    /** Total number of operations recorded. */
+    public int getOperationCount() {
+        return mOpCount;
+    }
+
+    /** Number of recorded operations of one kind, e.g. {@link #OP_LINE}. */
+    public int getOperationCount(int op) {
+        return mOpCounts[op];
+    }
+
+    public int getOp(int index) {
+        return mOps[index];
+    }
+
+    public int getInk(int index) {
+        return mInks[index];
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int ink) {
+        begin(OP_RECT, ink, 4);
+        mArgs[mArgCount++] = left;
+        mArgs[mArgCount++] = top;
+        mArgs[mArgCount++] = right;
+        mArgs[mArgCount++] = bottom;
+        end();
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        begin(OP_LINE, ink, 4);
+        mArgs[mArgCount++] = startX;
+        mArgs[mArgCount++] = startY;
+        mArgs[mArgCount++] = stopX;
+        mArgs[mArgCount++] = stopY;
+        end();
+    }
+
+    @Override
+    public void drawLines(float[] pts, int ink) {
+        addArray(OP_LINES, pts, ink);
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int ink) {
+        addArray(OP_POINTS, pts, ink);
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int ink) {
+        begin(OP_CIRCLE, ink, 3);
+        mArgs[mArgCount++] = cx;
+        mArgs[mArgCount++] = cy;
+        mArgs[mArgCount++] = radius;
+        end();
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+        begin(OP_TEXT, ink, 4);
+        mArgs[mArgCount++] = x;
+        mArgs[mArgCount++] = y;
+        mArgs[mArgCount++] = mCharCount;
+        mArgs[mArgCount++] = count;
+        end();
+        if (mCharCount + count > mChars.length) {
+            mChars = Arrays.copyOf(mChars, Math.max(mChars.length * 2, mCharCount + count));
+        }
+        System.arraycopy(text, index, mChars, mCharCount, count);
+        mCharCount += count;
+    }
+
+    /**
+     * Appends a readable listing of the recorded operations, one per line, suitable for
+     * comparing two frames as text. Coordinates are rounded to hundredths of a pixel, so the
+     * listing doesn't depend on how a JVM prints floats.
+     */
+    public void appendTo(StringBuilder out) {
+        for (int i = 0; i < mOpCount; i++) {
+            int op = mOps[i];
+            out.append(OP_NAMES[op]).append(" ink=").append(mInks[i]);
+            int start = mArgStarts[i];
+            int end = mArgStarts[i + 1];
+            if (op == OP_TEXT) {
+                appendNumber(out, mArgs[start]);
+                appendNumber(out, mArgs[start + 1]);
+                out.append(" \"").append(mChars, (int) mArgs[start + 2], (int) mArgs[start + 3])
+                        .append('"');
+            } else {
+                for (int j = start; j < end; j++) {
+                    appendNumber(out, mArgs[j]);
+                }
+            }
+            out.append('\n');
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        appendTo(out);
+        return out.toString();
+    }
+
+    private static void appendNumber(StringBuilder out, float value) {
+        long hundredths = Math.round(value * 100.0);
+        out.append(' ');
+        if (hundredths < 0) {
+            out.append('-');
+            hundredths = -hundredths;
+        }
+        long fraction = hundredths % 100;
+        out.append(hundredths / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    private void addArray(int op, float[] pts, int ink) {
+        begin(op, ink, pts.length);
+        System.arraycopy(pts, 0, mArgs, mArgCount, pts.length);
+        mArgCount += pts.length;
+        end();
+    }
+
+    private void begin(int op, int ink, int argCount) {
+        if (mOpCount == mOps.length) {
+            int size = mOps.length * 2;
+            mOps = Arrays.copyOf(mOps, size);
+            mInks = Arrays.copyOf(mInks, size);
+            mArgStarts = Arrays.copyOf(mArgStarts, size + 1);
+        }
+        if (mArgCount + argCount > mArgs.length) {
+            mArgs = Arrays.copyOf(mArgs, Math.max(mArgs.length * 2, mArgCount + argCount));
+        }
+        mOps[mOpCount] = op;
+        mInks[mOpCount] = ink;
+        mArgStarts[mOpCount] = mArgCount;
+        mOpCounts[op]++;
+    }
+
+    private void end() {
+        mOpCount++;
+        mArgStarts[mOpCount] = mArgCount;
+    }
+}
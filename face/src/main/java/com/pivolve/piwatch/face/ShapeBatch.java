@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+import java.util.Arrays;
+
+/**
+ * A {@link DrawTarget} that turns shapes into quads for the GL backend. Every line, point,
+ * circle and rectangle becomes one quad that covers it, and each of the quad's four vertices
+ * carries the whole shape (its kind, end points, width, cap, dash pattern and colour), so that
+ * {@link ShapeShader} can work out the coverage of each pixel. OpenGL ES 2.0 has no instancing,
+ * so repeating the shape in every corner stands in for per-instance attributes; all quads share
+ * one index buffer, see {@link #fillIndices}.
+ *
+ * <p>Consecutive shapes form one batch, drawn with a single call. Text is not turned into
+ * quads: it goes to the {@link #setTextTarget text target}, if any, and a run of text calls
+ * becomes a text batch in between, so the backend can draw its text layer at the right depth.
+ *
+ * <p>Buffers only grow, so after the first frame building a batch allocates nothing.
+ */
+public final class ShapeBatch implements DrawTarget {
+    public static final int SHAPE_RECT = 0;
+    public static final int SHAPE_SEGMENT = 1;
+    public static final int SHAPE_DISC = 2;
+    public static final int SHAPE_RING = 3;
+
+    /** Offsets of the attributes within a vertex. */
+    public static final int ATTR_POSITION = 0;
+    /** End points of a segment, or the center of a disc or ring twice. */
+    public static final int ATTR_SEGMENT = 2;
+    /** Half the stroke width, and the radius of a disc or ring. */
+    public static final int ATTR_SIZE = 6;
+    /** Shape, cap, and dash on and off lengths (all zero for a solid line). */
+    public static final int ATTR_STYLE = 8;
+    /** Red, green, blue and alpha, 0-1, not premultiplied. */
+    public static final int ATTR_COLOR = 12;
+    /** 1 for anti-aliased edges, 0 for aliased ones. */
+    public static final int ATTR_SMOOTH = 16;
+    public static final int VERTEX_FLOATS = 17;
+    public static final int QUAD_FLOATS = 4 * VERTEX_FLOATS;
+
+    public static final int BATCH_SHAPES = 0;
+    public static final int BATCH_TEXT = 1;
+
+    /** Pixels added around every quad, for the anti-aliased edge. */
+    private static final float EDGE = 1f;
+
+    /** Resolved styles, per ink. */
+    private final float[] mColors = new float[4 * Ink.COUNT];
+    private final float[] mHalfWidths = new float[Ink.COUNT];
+    private final int[] mCaps = new int[Ink.COUNT];
+    private final boolean[] mOutlines = new boolean[Ink.COUNT];
+    private final float[] mDashOn = new float[Ink.COUNT];
+    private final float[] mDashOff = new float[Ink.COUNT];
+    private final float[] mSmooth = new float[Ink.COUNT];
+
+    private float[] mVertices = new float[64 * QUAD_FLOATS];
+    private int mQuadCount;
+
+    private int[] mBatchTypes = new int[8];
+    /** First quad of each batch; the extra slot is the end of the last one. */
+    private int[] mBatchStarts = new int[9];
+    private int mBatchCount;
+
+    private DrawTarget mTextTarget;
+
+    /**
+     * Resolves the styles of every ink to pixels for a layout. Inks without a style draw
+     * nothing, rather than keeping the style of a previous theme.
+     */
+    public void setStyles(InkStyle[] styles, FaceLayout layout) {
+        for (int ink = 0; ink < Ink.COUNT; ink++) {
+            InkStyle style = styles[ink];
+            if (style == null) {
+                clearStyle(ink);
+                continue;
+            }
+            int color = style.getColor();
+            mColors[4 * ink] = ((color >> 16) & 0xff) / 255f;
+            mColors[4 * ink + 1] = ((color >> 8) & 0xff) / 255f;
+            mColors[4 * ink + 2] = (color & 0xff) / 255f;
+            mColors[4 * ink + 3] = (color >>> 24) / 255f;
+            // Android draws hairlines one pixel wide.
+            mHalfWidths[ink] = Math.max(1, layout.toPixels(style.getStrokeWidth())) / 2;
+            mCaps[ink] = style.getCap();
+            mOutlines[ink] = style.isOutline();
+            mDashOn[ink] = style.getDashOn();
+            mDashOff[ink] = style.getDashOff();
+            mSmooth[ink] = style.isAntiAlias() ? 1 : 0;
+        }
+    }
+
+    /** Makes an ink transparent and zero width. */
+    private void clearStyle(int ink) {
+        mColors[4 * ink] = 0;
+        mColors[4 * ink + 1] = 0;
+        mColors[4 * ink + 2] = 0;
+        mColors[4 * ink + 3] = 0;
+        mHalfWidths[ink] = 0;
+        mCaps[ink] = InkStyle.CAP_BUTT;
+        mOutlines[ink] = false;
+        mDashOn[ink] = 0;
+        mDashOff[ink] = 0;
+        mSmooth[ink] = 0;
+    }
+
+    /** Sets where text calls go, or null to only record where the text layer goes. */
+    public void setTextTarget(DrawTarget textTarget) {
+        mTextTarget = textTarget;
+    }
+
+    /** Starts a new frame, keeping the buffers. */
+    public void reset() {
+        mQuadCount = 0;
+        mBatchCount = 0;
+    }
+
+    /** The vertices of all quads, {@link #VERTEX_FLOATS} floats per vertex. */
+    public float[] getVertices() {
+        return mVertices;
+    }
+
+    public int getQuadCount() {
+        return mQuadCount;
+    }
+
+    public int getBatchCount() {
+        return mBatchCount;
+    }
+
+    /** {@link #BATCH_SHAPES} or {@link #BATCH_TEXT}. */
+    public int getBatchType(int batch) {
+        return mBatchTypes[batch];
+    }
+
+    public int getBatchStart(int batch) {
+        return mBatchStarts[batch];
+    }
+
+    /** Number of quads in a batch; zero for text. */
+    public int getBatchQuadCount(int batch) {
+        return mBatchStarts[batch + 1] - mBatchStarts[batch];
+    }
+
+    /**
+     * Fills {@code out} with the indices of two triangles per quad, for {@code out.length / 6}
+     * quads. The same indices serve every frame.
+     */
+    public static void fillIndices(short[] out) {
+        for (int quad = 0; quad < out.length / 6; quad++) {
+            int vertex = 4 * quad;
+            out[6 * quad] = (short) vertex;
+            out[6 * quad + 1] = (short) (vertex + 1);
+            out[6 * quad + 2] = (short) (vertex + 2);
+            out[6 * quad + 3] = (short) (vertex + 2);
+            out[6 * quad + 4] = (short) (vertex + 1);
+            out[6 * quad + 5] = (short) (vertex + 3);
+        }
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, int ink) {
+        if (mOutlines[ink]) {
+            addSegment(left, top, right, top, ink, InkStyle.CAP_SQUARE);
+            addSegment(right, top, right, bottom, ink, InkStyle.CAP_SQUARE);
+            addSegment(right, bottom, left, bottom, ink, InkStyle.CAP_SQUARE);
+            addSegment(left, bottom, left, top, ink, InkStyle.CAP_SQUARE);
+            return;
+        }
+        int base = beginQuad();
+        setCorners(base, left, top, right, top, left, bottom, right, bottom);
+        setShape(base, left, top, right, bottom, 0, 0, SHAPE_RECT, ink, 0);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        addSegment(startX, startY, stopX, stopY, ink, mCaps[ink]);
+    }
+
+    @Override
+    public void drawLines(float[] pts, int ink) {
+        for (int i = 0; i + 3 < pts.length; i += 4) {
+            addSegment(pts[i], pts[i + 1], pts[i + 2], pts[i + 3], ink, mCaps[ink]);
+        }
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int ink) {
+        // A point is a square, or a dot with a round cap: a segment of length zero.
+        int cap = mCaps[ink] == InkStyle.CAP_ROUND ? InkStyle.CAP_ROUND : InkStyle.CAP_SQUARE;
+        for (int i = 0; i + 1 < pts.length; i += 2) {
+            addSegment(pts[i], pts[i + 1], pts[i], pts[i + 1], ink, cap);
+        }
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, int ink) {
+        boolean ring = mOutlines[ink];
+        int shape = ring ? SHAPE_RING : SHAPE_DISC;
+        float halfWidth = ring ? mHalfWidths[ink] : 0;
+        float extent = radius + halfWidth + EDGE;
+        int base = beginQuad();
+        setCorners(base, cx - extent, cy - extent, cx + extent, cy - extent,
+                cx - extent, cy + extent, cx + extent, cy + extent);
+        setShape(base, cx, cy, cx, cy, halfWidth, radius, shape, ink, 0);
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+        if (mBatchCount == 0 || mBatchTypes[mBatchCount - 1] != BATCH_TEXT) {
+            addBatch(BATCH_TEXT);
+        }
+        if (mTextTarget != null) {
+            mTextTarget.drawText(text, index, count, x, y, ink);
+        }
+    }
+
+    private void addSegment(float x0, float y0, float x1, float y1, int ink, int cap) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length > 0) {
+            dx /= length;
+            dy /= length;
+        } else {
+            dx = 1;
+            dy = 0;
+        }
+        // Along the segment and across it, far enough for any cap and the edge.
+        float extent = mHalfWidths[ink] + EDGE;
+        float alongX = dx * extent;
+        float alongY = dy * extent;
+        float acrossX = -dy * extent;
+        float acrossY = dx * extent;
+        int base = beginQuad();
+        setCorners(base,
+                x0 - alongX + acrossX, y0 - alongY + acrossY,
+                x0 - alongX - acrossX, y0 - alongY - acrossY,
+                x1 + alongX + acrossX, y1 + alongY + acrossY,
+                x1 + alongX - acrossX, y1 + alongY - acrossY);
+        setShape(base, x0, y0, x1, y1, mHalfWidths[ink], 0, SHAPE_SEGMENT, ink, cap);
+    }
+
+    /** Adds a quad to the current shape batch and returns the index of its first float. */
+    private int beginQuad() {
+        if (mBatchCount == 0 || mBatchTypes[mBatchCount - 1] != BATCH_SHAPES) {
+            addBatch(BATCH_SHAPES);
+        }
+        if ((mQuadCount + 1) * QUAD_FLOATS > mVertices.length) {
+            mVertices = Arrays.copyOf(mVertices, mVertices.length * 2);
+        }
+        int base = mQuadCount * QUAD_FLOATS;
+        mQuadCount++;
+        mBatchStarts[mBatchCount] = mQuadCount;
+        return base;
+    }
+
+    private void addBatch(int type) {
+        if (mBatchCount == mBatchTypes.length) {
+            mBatchTypes = Arrays.copyOf(mBatchTypes, mBatchCount * 2);
+            mBatchStarts = Arrays.copyOf(mBatchStarts, mBatchCount * 2 + 1);
+        }
+        mBatchTypes[mBatchCount] = type;
+        mBatchStarts[mBatchCount] = mQuadCount;
+        mBatchCount++;
+        mBatchStarts[mBatchCount] = mQuadCount;
+    }
+
+    /** Sets the positions of the four corners, in the order the indices expect. */
+    private void setCorners(int base, float x0, float y0, float x1, float y1, float x2,
+            float y2, float x3, float y3) {
+        float[] v = mVertices;
+        v[base + ATTR_POSITION] = x0;
+        v[base + ATTR_POSITION + 1] = y0;
+        v[base + VERTEX_FLOATS + ATTR_POSITION] = x1;
+        v[base + VERTEX_FLOATS + ATTR_POSITION + 1] = y1;
+        v[base + 2 * VERTEX_FLOATS + ATTR_POSITION] = x2;
+        v[base + 2 * VERTEX_FLOATS + ATTR_POSITION + 1] = y2;
+        v[base + 3 * VERTEX_FLOATS + ATTR_POSITION] = x3;
+        v[base + 3 * VERTEX_FLOATS + ATTR_POSITION + 1] = y3;
+    }
+
+    /** Writes the shape's attributes into all four vertices of the quad. */
+    private void setShape(int base, float x0, float y0, float x1, float y1, float halfWidth,
+            float radius, int shape, int ink, int cap) {
+        float[] v = mVertices;
+        for (int corner = 0; corner < 4; corner++) {
+            int i = base + corner * VERTEX_FLOATS;
+            v[i + ATTR_SEGMENT] = x0;
+            v[i + ATTR_SEGMENT + 1] = y0;
+            v[i + ATTR_SEGMENT + 2] = x1;
+            v[i + ATTR_SEGMENT + 3] = y1;
+            v[i + ATTR_SIZE] = halfWidth;
+            v[i + ATTR_SIZE + 1] = radius;
+            v[i + ATTR_STYLE] = shape;
+            v[i + ATTR_STYLE + 1] = cap;
+            v[i + ATTR_STYLE + 2] = shape == SHAPE_SEGMENT ? mDashOn[ink] : 0;
+            v[i + ATTR_STYLE + 3] = shape == SHAPE_SEGMENT ? mDashOff[ink] : 0;
+            System.arraycopy(mColors, 4 * ink, v, i + ATTR_COLOR, 4);
+            v[i + ATTR_SMOOTH] = mSmooth[ink];
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * The OpenGL ES 2.0 program that draws the quads of a {@link ShapeBatch}: the vertex shader
+ * maps pixels to clip space, and the fragment shader measures each pixel's distance to the
+ * shape and turns it into coverage. {@link #coverage} does the same in Java, so that the
+ * geometry can be rasterized and checked on a machine without GL. The two must be kept in step.
+ */
+public final class ShapeShader {
+    /** Uniform holding the surface size in pixels. */
+    public static final String UNIFORM_SURFACE = "uSurface";
+
+    /** Attribute names, in the order of the {@link ShapeBatch} vertex layout. */
+    public static final String ATTR_POSITION = "aPosition";
+    public static final String ATTR_SEGMENT = "aSegment";
+    public static final String ATTR_SIZE = "aSize";
+    public static final String ATTR_STYLE = "aStyle";
+    public static final String ATTR_COLOR = "aColor";
+    public static final String ATTR_SMOOTH = "aSmooth";
+
+    public static final String VERTEX_SOURCE = ""
+            + "uniform vec2 uSurface;\n"
+            + "attribute vec2 aPosition;\n"
+            + "attribute vec4 aSegment;\n"
+            + "attribute vec2 aSize;\n"
+            + "attribute vec4 aStyle;\n"
+            + "attribute vec4 aColor;\n"
+            + "attribute float aSmooth;\n"
+            + "varying vec4 vPositionSize;\n"
+            + "varying vec4 vSegment;\n"
+            + "varying vec4 vStyle;\n"
+            + "varying vec4 vColor;\n"
+            + "varying float vSmooth;\n"
+            + "void main() {\n"
+            + "    vPositionSize = vec4(aPosition, aSize);\n"
+            + "    vSegment = aSegment;\n"
+            + "    vStyle = aStyle;\n"
+            + "    vColor = aColor;\n"
+            + "    vSmooth = aSmooth;\n"
+            + "    gl_Position = vec4(aPosition.x / uSurface.x * 2.0 - 1.0,\n"
+            + "            1.0 - aPosition.y / uSurface.y * 2.0, 0.0, 1.0);\n"
+            + "}\n";
+
+    public static final String FRAGMENT_SOURCE = ""
+            // Positions go up to the surface size, too much for mediump.
+            + "#ifdef GL_FRAGMENT_PRECISION_HIGH\n"
+            + "precision highp float;\n"
+            + "#else\n"
+            + "precision mediump float;\n"
+            + "#endif\n"
+            + "varying vec4 vPositionSize;\n"
+            + "varying vec4 vSegment;\n"
+            + "varying vec4 vStyle;\n"
+            + "varying vec4 vColor;\n"
+            + "varying float vSmooth;\n"
+            + "float part(vec2 p, vec2 p0, vec2 dir, float a, float b, float halfWidth,\n"
+            + "        float cap) {\n"
+            + "    if (a > b) {\n"
+            + "        return 1e4;\n"
+            + "    }\n"
+            + "    float t = dot(p - p0, dir);\n"
+            + "    if (cap == 1.0) {\n"
+            + "        return length(p - (p0 + dir * clamp(t, a, b))) - halfWidth;\n"
+            + "    }\n"
+            + "    float extend = cap == 2.0 ? halfWidth : 0.0;\n"
+            + "    float across = abs(dot(p - p0, vec2(-dir.y, dir.x)));\n"
+            + "    return max(across - halfWidth, max(a - extend - t, t - b - extend));\n"
+            + "}\n"
+            + "void main() {\n"
+            + "    vec2 p = vPositionSize.xy;\n"
+            + "    float halfWidth = vPositionSize.z;\n"
+            + "    float radius = vPositionSize.w;\n"
+            + "    float shape = vStyle.x;\n"
+            + "    float d = -1.0;\n"
+            + "    if (shape == 1.0) {\n"
+            + "        vec2 p0 = vSegment.xy;\n"
+            + "        vec2 v = vSegment.zw - p0;\n"
+            + "        float len = length(v);\n"
+            + "        vec2 dir = len > 0.0 ? v / len : vec2(1.0, 0.0);\n"
+            + "        float on = vStyle.z;\n"
+            + "        float period = on + vStyle.w;\n"
+            + "        if (period > 0.0) {\n"
+            + "            float start = floor(dot(p - p0, dir) / period) * period;\n"
+            + "            float next = start + period;\n"
+            + "            d = min(part(p, p0, dir, max(start, 0.0), min(start + on, len),\n"
+            + "                    halfWidth, vStyle.y),\n"
+            + "                    part(p, p0, dir, max(next, 0.0), min(next + on, len),\n"
+            + "                    halfWidth, vStyle.y));\n"
+            + "        } else {\n"
+            + "            d = part(p, p0, dir, 0.0, len, halfWidth, vStyle.y);\n"
+            + "        }\n"
+            + "    } else if (shape == 2.0) {\n"
+            + "        d = length(p - vSegment.xy) - radius;\n"
+            + "    } else if (shape == 3.0) {\n"
+            + "        d = abs(length(p - vSegment.xy) - radius) - halfWidth;\n"
+            + "    }\n"
+            + "    float coverage = vSmooth > 0.5 ? clamp(0.5 - d, 0.0, 1.0) : step(d, 0.0);\n"
+            + "    gl_FragColor = vec4(vColor.rgb, vColor.a * coverage);\n"
+            + "}\n";
+
+    private ShapeShader() {
+    }
+
+    /**
+     * What the fragment shader computes for the pixel whose center is at ({@code x},
+     * {@code y}): the coverage of the shape whose attributes start at {@code vertex} in
+     * {@code vertices}, 0-1.
+     */
+    public static float coverage(float[] vertices, int vertex, float x, float y) {
+        float x0 = vertices[vertex + ShapeBatch.ATTR_SEGMENT];
+        float y0 = vertices[vertex + ShapeBatch.ATTR_SEGMENT + 1];
+        float x1 = vertices[vertex + ShapeBatch.ATTR_SEGMENT + 2];
+        float y1 = vertices[vertex + ShapeBatch.ATTR_SEGMENT + 3];
+        float halfWidth = vertices[vertex + ShapeBatch.ATTR_SIZE];
+        float radius = vertices[vertex + ShapeBatch.ATTR_SIZE + 1];
+        int shape = (int) vertices[vertex + ShapeBatch.ATTR_STYLE];
+        int cap = (int) vertices[vertex + ShapeBatch.ATTR_STYLE + 1];
+        float on = vertices[vertex + ShapeBatch.ATTR_STYLE + 2];
+        float period = on + vertices[vertex + ShapeBatch.ATTR_STYLE + 3];
+
+        float d = -1;
+        if (shape == ShapeBatch.SHAPE_SEGMENT) {
+            float dx = x1 - x0;
+            float dy = y1 - y0;
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+            if (length > 0) {
+                dx /= length;
+                dy /= length;
+            } else {
+                dx = 1;
+                dy = 0;
+            }
+            if (period > 0) {
+                float t = (x - x0) * dx + (y - y0) * dy;
+                float start = (float) Math.floor(t / period) * period;
+                float next = start + period;
+                d = Math.min(
+                        part(x, y, x0, y0, dx, dy, Math.max(start, 0),
+                                Math.min(start + on, length), halfWidth, cap),
+                        part(x, y, x0, y0, dx, dy, Math.max(next, 0),
+                                Math.min(next + on, length), halfWidth, cap));
+            } else {
+                d = part(x, y, x0, y0, dx, dy, 0, length, halfWidth, cap);
+            }
+        } else if (shape == ShapeBatch.SHAPE_DISC) {
+            d = distance(x - x0, y - y0) - radius;
+        } else if (shape == ShapeBatch.SHAPE_RING) {
+            d = Math.abs(distance(x - x0, y - y0) - radius) - halfWidth;
+        }
+        if (vertices[vertex + ShapeBatch.ATTR_SMOOTH] > 0.5f) {
+            return Math.max(0, Math.min(1, 0.5f - d));
+        }
+        return d <= 0 ? 1 : 0;
+    }
+
+    /**
+     * Signed distance to the part of a segment between {@code a} and {@code b} along it, drawn
+     * with the given cap.
+     */
+    private static float part(float x, float y, float x0, float y0, float dx, float dy, float a,
+            float b, float halfWidth, int cap) {
+        if (a > b) {
+            return 1e4f;
+        }
+        float t = (x - x0) * dx + (y - y0) * dy;
+        if (cap == InkStyle.CAP_ROUND) {
+            float s = Math.max(a, Math.min(b, t));
+            return distance(x - (x0 + dx * s), y - (y0 + dy * s)) - halfWidth;
+        }
+        float extend = cap == InkStyle.CAP_SQUARE ? halfWidth : 0;
+        float across = Math.abs((x - x0) * -dy + (y - y0) * dx);
+        return Math.max(across - halfWidth, Math.max(a - extend - t, t - b - extend));
+    }
+
+    private static float distance(float dx, float dy) {
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * A named set of {@link InkStyle}s for every ink, in interactive and ambient mode. The low-bit
+ * ambient styles are derived from the ambient ones. Themes are immutable and shared; a
+ * platform backend turns each combination into its paints once.
+ */
+public final class Theme {
+    /** The original orange, yellow and blue face. */
+    public static final Theme CLASSIC =
+            create("classic", 0xffe5de00, 0xffe89500, 0xff07b4cc, 0xff821d17);
+    public static final Theme OCEAN =
+            create("ocean", 0xff80deea, 0xff26c6da, 0xffffffff, 0xff00838f);
+    public static final Theme MONO =
+            create("mono", 0xffffffff, 0xffe0e0e0, 0xff9e9e9e, 0xff757575);
+
+    private static final Theme[] ALL = {CLASSIC, OCEAN, MONO};
+
+    private static final int BLACK = 0xff000000;
+    private static final int WHITE = 0xffffffff;
+    private static final int GREY = 0xff9e9e9e;
+
+    private final String mName;
+    private final InkStyle[] mInteractive;
+    private final InkStyle[] mAmbient;
+    private final InkStyle[] mLowBitAmbient;
+
+    private Theme(String name, InkStyle[] interactive, InkStyle[] ambient) {
+        mName = name;
+        mInteractive = interactive;
+        mAmbient = ambient;
+        mLowBitAmbient = new InkStyle[Ink.COUNT];
+        for (int ink = 0; ink < Ink.COUNT; ink++) {
+            if (ambient[ink] != null) {
+                mLowBitAmbient[ink] = ambient[ink].forLowBit();
+            }
+        }
+    }
+
+    /**
+     * Lays a palette out on the face: {@code marks} for the cardinal marks, {@code hands} for
+     * the hour ticks, hands, date and complications, {@code seconds} for the minute dots,
+     * second hand and time, and {@code quote} for the quote.
+     */
+    private static Theme create(String name, int marks, int hands, int seconds, int quote) {
+        InkStyle[] interactive = new InkStyle[Ink.COUNT];
+        interactive[Ink.BACKGROUND] = InkStyle.fill(BLACK);
+        interactive[Ink.CARDINAL] = InkStyle.stroke(marks, 5, InkStyle.CAP_ROUND);
+        interactive[Ink.HOUR_TICK] = InkStyle.stroke(hands, 2, InkStyle.CAP_SQUARE);
+        interactive[Ink.MINUTE_DOT] = InkStyle.stroke(seconds, 2, InkStyle.CAP_ROUND);
+        interactive[Ink.SECOND_MARKER] = InkStyle.stroke(seconds, 5, InkStyle.CAP_ROUND);
+        interactive[Ink.SECOND_HAND] =
+                InkStyle.stroke(seconds, 3, InkStyle.CAP_ROUND).withDash(1, 5);
+        interactive[Ink.MINUTE_HAND] = InkStyle.stroke(hands, 3, InkStyle.CAP_ROUND);
+        interactive[Ink.HOUR_HAND] = InkStyle.stroke(hands, 4, InkStyle.CAP_ROUND);
+        interactive[Ink.HAND_CAP] = InkStyle.fill(BLACK);
+        interactive[Ink.TIME_TEXT] = InkStyle.text(seconds, 32);
+        interactive[Ink.DATE_TEXT] = InkStyle.text(hands, 12).withFakeBold();
+        interactive[Ink.QUOTE_TEXT] = InkStyle.text(quote, 16);
+        interactive[Ink.DATA_TEXT] = InkStyle.text(hands, 14);
+
+        // Only what AmbientRenderer draws, in greys.
+        InkStyle[] ambient = new InkStyle[Ink.COUNT];
+        ambient[Ink.BACKGROUND] = InkStyle.fill(BLACK);
+        ambient[Ink.CARDINAL_AMBIENT] = InkStyle.stroke(GREY, 3, InkStyle.CAP_BUTT);
+        ambient[Ink.HOUR_TICK] = InkStyle.stroke(GREY, 2, InkStyle.CAP_BUTT);
+        ambient[Ink.HOUR_HAND] = InkStyle.stroke(WHITE, 2, InkStyle.CAP_ROUND).withOutline();
+        return new Theme(name, interactive, ambient);
+    }
+
+    /** Returns the theme with the given name, or null if there is none. */
+    public static Theme find(String name) {
+        for (Theme theme : ALL) {
+            if (theme.mName.equals(name)) {
+                return theme;
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /** Returns the style of every ink for a mode. Inks the mode doesn't draw are null. */
+    public InkStyle[] getStyles(boolean ambient, boolean lowBit) {
+        InkStyle[] styles = !ambient ? mInteractive : lowBit ? mLowBitAmbient : mAmbient;
+        return styles.clone();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pivolve.piwatch.face;
+
+/**
+ * Schedules one frame per wall-clock second (or other interval). Alarms are set on the
+ * monotonic clock, aimed at the next wall-clock boundary; the offset between the two clocks is
+ * measured again on every alarm and whenever the wall clock is known to have been changed, so
+ * the ticks stay on the boundary without drifting.
+ *
+ * <p>Each tick interval produces at most one frame: an alarm is dropped if a frame has already
+ * been drawn in its interval, and starting an already running scheduler does nothing.
+ */
+public final class TickScheduler {
+    /** Where the scheduler sets its alarms and delivers its ticks. */
+    public interface Host {
+        /** Sets the single pending alarm to call {@link #onAlarm()} at the given uptime. */
+        void scheduleAlarm(long uptimeMillis);
+
+        void cancelAlarm();
+
+        /**
+         * Called when a frame should be drawn.
+         *
+         * @param latencyMillis how late the alarm fired, or -1 for a tick that was not aimed at
+         *                      a boundary (the first tick after starting)
+         */
+        void onTick(long latencyMillis);
+    }
+
+    private final Clock mClock;
+    private final Host mHost;
+    private final long mIntervalMillis;
+
+    /** Wall time minus uptime, as last measured. */
+    private long mOffsetMillis;
+    private boolean mRunning;
+    /** Uptime the pending alarm was aimed at, or -1 if it fires as soon as possible. */
+    private long mAlarmUptimeMillis = -1;
+    /** Index (wall time / interval) of the interval a frame was last drawn in. */
+    private long mLastFrameInterval = Long.MIN_VALUE;
+
+    public TickScheduler(Clock clock, Host host, long intervalMillis) {
+        mClock = clock;
+        mHost = host;
+        mIntervalMillis = intervalMillis;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /** Starts ticking, drawing a frame straight away if none was drawn in this interval. */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        measureOffset();
+        mAlarmUptimeMillis = -1;
+        mHost.scheduleAlarm(mClock.uptimeMillis());
+    }
+
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mHost.cancelAlarm();
+    }
+
+    /**
+     * Tells the scheduler the wall clock was set. Re-aims the pending alarm and lets the
+     * current interval draw again, in case time went backwards.
+     */
+    public void onWallClockChanged() {
+        mLastFrameInterval = Long.MIN_VALUE;
+        if (mRunning) {
+            mHost.cancelAlarm();
+            measureOffset();
+            mAlarmUptimeMillis = -1;
+            mHost.scheduleAlarm(mClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * Tells the scheduler a frame was drawn at the given wall time, whatever asked for it, so
+     * an alarm in the same interval doesn't draw it again.
+     */
+    public void onFrameDrawn(long wallMillis) {
+        mLastFrameInterval = wallMillis / mIntervalMillis;
+    }
+
+    /** Called by the host when the alarm set through {@link Host#scheduleAlarm} fires. */
+    public void onAlarm() {
+        if (!mRunning) {
+            return;
+        }
+        long uptime = mClock.uptimeMillis();
+        long latency = mAlarmUptimeMillis < 0 ? -1 : Math.max(0, uptime - mAlarmUptimeMillis);
+        measureOffset();
+        long wall = uptime + mOffsetMillis;
+        long interval = wall / mIntervalMillis;
+
+        // Aim at the start of the next interval before drawing, so a slow frame doesn't push
+        // the next tick back.
+        mAlarmUptimeMillis = (interval + 1) * mIntervalMillis - mOffsetMillis;
+        mHost.scheduleAlarm(mAlarmUptimeMillis);
+
+        if (interval != mLastFrameInterval) {
+            mLastFrameInterval = interval;
+            mHost.onTick(latency);
+        }
+    }
+
+    private void measureOffset() {
+        mOffsetMillis = mClock.currentTimeMillis() - mClock.uptimeMillis();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import java.util.TimeZone;
+
+/**
+ * The local time shown on the face, with the digital readouts derived from it. Replaces
+ * {@code android.text.format.Time}: within a minute, {@link #set} only works out the seconds
+ * with integer arithmetic. The time zone is consulted and the calendar fields and readouts are
+ * recomputed only when the minute changes or the zone is set. Hand directions come from
+ * {@link HandGeometry}.
+ *
+ * <p>The zone offset is cached for the minute too. A transition that isn't on a minute
+ * boundary, such as a local mean time offset with seconds, shows up to a minute late.
+ */
+public final class TimeState {
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    private final TimeText mTimeText = new TimeText();
+    private TimeZone mZone;
+
+    /** Start (inclusive) and end (exclusive) of the minute the fields below are valid for. */
+    private long mMinuteStart = Long.MAX_VALUE;
+    private long mMinuteEnd = Long.MIN_VALUE;
+
+    private int mYear;
+    private int mMonth;
+    private int mMonthDay;
+    private int mHour;
+    private int mMinute;
+    private int mSecond;
+    private int mMillis;
+
+    public TimeState(TimeZone zone) {
+        mZone = zone;
+    }
+
+    /** Switches to another time zone. The fields are recomputed on the next {@link #set}. */
+    public void setZone(TimeZone zone) {
+        mZone = zone;
+        mMinuteStart = Long.MAX_VALUE;
+        mMinuteEnd = Long.MIN_VALUE;
+    }
+
+    /**
+     * Sets the time.
+     *
+     * @return whether the minute (and with it the readouts) changed
+     */
+    public boolean set(long epochMillis) {
+        boolean newMinute = epochMillis < mMinuteStart || epochMillis >= mMinuteEnd;
+        if (newMinute) {
+            computeMinute(epochMillis);
+        }
+        int millisOfMinute = (int) (epochMillis - mMinuteStart);
+        mSecond = millisOfMinute / 1000;
+        mMillis = millisOfMinute % 1000;
+        return newMinute;
+    }
+
+    private void computeMinute(long epochMillis) {
+        long local = epochMillis + mZone.getOffset(epochMillis);
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+        int millisOfMinute = millisOfDay % (int) MILLIS_PER_MINUTE;
+        mMinuteStart = epochMillis - millisOfMinute;
+        mMinuteEnd = mMinuteStart + MILLIS_PER_MINUTE;
+
+        int minuteOfDay = millisOfDay / (int) MILLIS_PER_MINUTE;
+        mHour = minuteOfDay / 60;
+        mMinute = minuteOfDay % 60;
+        setDate(days);
+        mTimeText.update(mMonth, mMonthDay, mHour, mMinute);
+    }
+
+    /** Sets year, month and day from the number of days since 1970-01-01. */
+    private void setDate(long epochDay) {
+        // Days since 0000-03-01 in the proleptic Gregorian calendar, split into 400 year eras.
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        // Months counted from March, so the leap day is at the end of the year.
+        int marchMonth = (5 * dayOfYear + 2) / 153;
+        mMonthDay = dayOfYear - (153 * marchMonth + 2) / 5 + 1;
+        mMonth = marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
+        mYear = (int) (yearOfEra + era * 400) + (mMonth <= 2 ? 1 : 0);
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    public int getYear() {
+        return mYear;
+    }
+
+    /** Month of the year, 1-12. */
+    public int getMonth() {
+        return mMonth;
+    }
+
+    /** Day of the month, 1-31. */
+    public int getMonthDay() {
+        return mMonthDay;
+    }
+
+    /** Hour of the day, 0-23. */
+    public int getHour() {
+        return mHour;
+    }
+
+    /** Minute of the hour, 0-59. */
+    public int getMinute() {
+        return mMinute;
+    }
+
+    /** Second of the minute, 0-59. */
+    public int getSecond() {
+        return mSecond;
+    }
+
+    /** Millisecond of the second, 0-999. */
+    public int getMillis() {
+        return mMillis;
+    }
+
+    /** The {@code MM-dd} readout, {@link TimeText#LENGTH} characters. Must not be modified. */
+    public char[] getDateText() {
+        return mTimeText.getDate();
+    }
+
+    /** The {@code HH:mm} readout, {@link TimeText#LENGTH} characters. Must not be modified. */
+    public char[] getTimeText() {
+        return mTimeText.getTime();
+    }
+}
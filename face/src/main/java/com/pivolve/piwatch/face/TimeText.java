@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/**
+ * The digital date ({@code MM-dd}) and time ({@code HH:mm}) readouts, formatted into fixed
+ * {@code char[]} buffers. The buffers are only rewritten when the minute or the day changes and
+ * formatting never allocates, so they can be handed straight to
+ * {@code Canvas.drawText(char[], int, int, float, float, Paint)} every frame.
+ */
+public final class TimeText {
+    public static final int LENGTH = 5;
+
+    private final char[] mDate = new char[LENGTH];
+    private final char[] mTime = new char[LENGTH];
+
+    private int mMonth = -1;
+    private int mDay = -1;
+    private int mHour = -1;
+    private int mMinute = -1;
+
+    public TimeText() {
+        mDate[2] = '-';
+        mTime[2] = ':';
+    }
+
+    /**
+     * Updates the readouts.
+     *
+     * @param month month of the year, 1-12
+     * @param day day of the month, 1-31
+     * @param hour hour of the day, 0-23
+     * @param minute minute of the hour, 0-59
+     * @return whether either readout changed
+     */
+    public boolean update(int month, int day, int hour, int minute) {
+        boolean changed = false;
+        if (month != mMonth || day != mDay) {
+            mMonth = month;
+            mDay = day;
+            putTwoDigits(mDate, 0, month);
+            putTwoDigits(mDate, 3, day);
+            changed = true;
+        }
+        if (hour != mHour || minute != mMinute) {
+            mHour = hour;
+            mMinute = minute;
+            putTwoDigits(mTime, 0, hour);
+            putTwoDigits(mTime, 3, minute);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /** The date readout, {@link #LENGTH} characters long. Must not be modified. */
+    public char[] getDate() {
+        return mDate;
+    }
+
+    /** The time readout, {@link #LENGTH} characters long. Must not be modified. */
+    public char[] getTime() {
+        return mTime;
+    }
+
+    private static void putTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+    }
+}
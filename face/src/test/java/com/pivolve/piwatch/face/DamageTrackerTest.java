@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DamageTrackerTest {
+    private static final int SIZE = 320;
+    private static final float PADDING = 2;
+    /** 2015-07-14 10:09:15 UTC. */
+    private static final long TIME_MILLIS = 1436868555000L;
+
+    private final FaceRenderer mRenderer = new FaceRenderer();
+    private final FaceState mState = new FaceState();
+    private final DamageTracker mTracker = new DamageTracker();
+    private final int[] mDamage = new int[4];
+
+    @Before
+    public void setUp() {
+        mRenderer.setLayout(FaceLayout.obtain(null, SIZE, SIZE, 0, 1));
+        mState.time.setZone(TimeZone.getTimeZone("UTC"));
+        mState.time.set(TIME_MILLIS);
+        mState.data = DataSnapshot.EMPTY;
+    }
+
+    @Test
+    public void firstFrameIsFull() {
+        assertFalse(damage());
+    }
+
+    @Test
+    public void tickWithinMinuteCoversOldAndNewHand() {
+        float[] before = bounds(PADDING);
+        drawn();
+        mState.time.set(TIME_MILLIS + 1000);
+        float[] after = bounds(PADDING);
+        assertTrue(damage());
+
+        assertContains(before);
+        assertContains(after);
+        // The union of the two, rounded outwards and nothing more.
+        assertEquals((int) Math.floor(Math.min(before[0], after[0])), mDamage[0]);
+        assertEquals((int) Math.floor(Math.min(before[1], after[1])), mDamage[1]);
+        assertEquals((int) Math.ceil(Math.max(before[2], after[2])), mDamage[2]);
+        assertEquals((int) Math.ceil(Math.max(before[3], after[3])), mDamage[3]);
+    }
+
+    @Test
+    public void sweepWithinSecondIsPartial() {
+        drawn();
+        mState.time.set(TIME_MILLIS + 16);
+        assertTrue(damage());
+        assertContains(bounds(PADDING));
+    }
+
+    @Test
+    public void newMinuteIsFull() {
+        mState.time.set(TIME_MILLIS + 44 * 1000);
+        drawn();
+        mState.time.set(TIME_MILLIS + 45 * 1000);
+        assertFalse(damage());
+    }
+
+    @Test
+    public void newHourIsFull() {
+        // 10:59:59 to 11:00:00.
+        mState.time.set(TIME_MILLIS + (50 * 60 + 44) * 1000);
+        drawn();
+        mState.time.set(TIME_MILLIS + (50 * 60 + 45) * 1000);
+        assertFalse(damage());
+    }
+
+    @Test
+    public void modeChangeIsFull() {
+        drawn();
+        mState.time.set(TIME_MILLIS + 1000);
+        mState.ambient = true;
+        assertFalse(damage());
+
+        // Ambient frames are always full, and so is the first one after.
+        drawn();
+        mState.time.set(TIME_MILLIS + 2000);
+        assertFalse(damage());
+        mState.ambient = false;
+        assertFalse(damage());
+    }
+
+    @Test
+    public void newQuoteIsFull() {
+        drawn();
+        mState.time.set(TIME_MILLIS + 1000);
+        mState.quote = QuoteLayout.create("Quote".toCharArray(), new TextMeasurer() {
+            @Override
+            public float measureText(char[] text, int index, int count) {
+                return count * 8;
+            }
+        }, 100, 3, 20);
+        assertFalse(damage());
+    }
+
+    @Test
+    public void newDataIsFull() {
+        drawn();
+        mState.time.set(TIME_MILLIS + 1000);
+        mState.data = DataSnapshot.EMPTY.withTexts(new char[][] {"80%".toCharArray()});
+        assertFalse(damage());
+    }
+
+    @Test
+    public void newLayoutIsFull() {
+        drawn();
+        mState.time.set(TIME_MILLIS + 1000);
+        mRenderer.setLayout(FaceLayout.obtain(mRenderer.getLayout(), SIZE, SIZE - 30, 30, 1));
+        assertFalse(damage());
+    }
+
+    @Test
+    public void invalidateForcesFullFrame() {
+        drawn();
+        mState.time.set(TIME_MILLIS + 1000);
+        mTracker.invalidate();
+        assertFalse(damage());
+    }
+
+    @Test
+    public void damageIsClippedToTheSurface() {
+        // At :15 and :16 the hand points right; padding pushes it past the right edge only.
+        float padding = SIZE / 4;
+        mTracker.onFrameDrawn(mRenderer, mState, padding);
+        mState.time.set(TIME_MILLIS + 1000);
+        assertTrue(mTracker.getDamage(mRenderer, mState, padding, mDamage));
+        assertTrue(bounds(padding)[2] > SIZE);
+        assertEquals(SIZE, mDamage[2]);
+        assertTrue(mDamage[0] > 0);
+
+        // Padding larger than the face covers all of it, and no more.
+        float huge = SIZE * 2;
+        mTracker.onFrameDrawn(mRenderer, mState, huge);
+        mState.time.set(TIME_MILLIS + 2000);
+        assertTrue(mTracker.getDamage(mRenderer, mState, huge, mDamage));
+        assertArrayEquals(new int[] {0, 0, SIZE, SIZE}, mDamage);
+    }
+
+    private void drawn() {
+        mTracker.onFrameDrawn(mRenderer, mState, PADDING);
+    }
+
+    private boolean damage() {
+        return mTracker.getDamage(mRenderer, mState, PADDING, mDamage);
+    }
+
+    private float[] bounds(float padding) {
+        float[] bounds = new float[4];
+        mRenderer.getSecondHandBounds(mState, padding, bounds);
+        return bounds;
+    }
+
+    private void assertContains(float[] bounds) {
+        assertTrue(mDamage[0] <= bounds[0]);
+        assertTrue(mDamage[1] <= bounds[1]);
+        assertTrue(mDamage[2] >= bounds[2]);
+        assertTrue(mDamage[3] >= bounds[3]);
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataPipelineTest {
+    private static final long POLL = 1000;
+
+    private FakeClock mClock;
+    private ManualExecutor mManual;
+    private ScheduledExecutorService mThread;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(0, 1400000000000L);
+        mManual = new ManualExecutor();
+        mThread = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mManual.shutdownNow();
+        mThread.shutdownNow();
+    }
+
+    @Test
+    public void readsEachSourceOnlyWhenDue() {
+        DataPipeline pipeline = new DataPipeline(mManual, mClock);
+        CountingSource fast = new CountingSource();
+        CountingSource slow = new CountingSource();
+        pipeline.setSource(DataPipeline.BATTERY, fast, 1000);
+        pipeline.setSource(DataPipeline.WEATHER, slow, 60000);
+        pipeline.start(POLL);
+
+        mManual.poll();
+        assertEquals(1, fast.mReads);
+        assertEquals(1, slow.mReads);
+        assertText(pipeline, DataPipeline.BATTERY, "1");
+        assertText(pipeline, DataPipeline.WEATHER, "1");
+
+        for (int i = 0; i < 59; i++) {
+            mClock.advance(POLL);
+            mManual.poll();
+        }
+        assertEquals(60, fast.mReads);
+        assertEquals(1, slow.mReads);
+        // The slow slot stays as it was until its interval is up, then catches up.
+        assertText(pipeline, DataPipeline.WEATHER, "1");
+        mClock.advance(POLL);
+        mManual.poll();
+        assertEquals(2, slow.mReads);
+        assertText(pipeline, DataPipeline.WEATHER, "2");
+    }
+
+    @Test
+    public void unchangedDataKeepsTheSnapshot() {
+        DataPipeline pipeline = new DataPipeline(mManual, mClock);
+        pipeline.setSource(DataPipeline.STEPS, new FixedSource("1234"), 0);
+        pipeline.start(POLL);
+        mManual.poll();
+        DataSnapshot first = pipeline.getSnapshot();
+        assertText(pipeline, DataPipeline.STEPS, "1234");
+
+        mClock.advance(POLL);
+        mManual.poll();
+        assertSame(first, pipeline.getSnapshot());
+    }
+
+    @Test
+    public void failingSourceKeepsItsPreviousText() {
+        DataPipeline pipeline = new DataPipeline(mManual, mClock);
+        FixedSource source = new FixedSource("80%");
+        pipeline.setSource(DataPipeline.BATTERY, source, 0);
+        pipeline.start(POLL);
+        mManual.poll();
+
+        source.mValue = null;
+        source.mFail = true;
+        mClock.advance(POLL);
+        mManual.poll();
+        assertText(pipeline, DataPipeline.BATTERY, "80%");
+
+        source.mFail = false;
+        mClock.advance(POLL);
+        mManual.poll();
+        assertNull(pipeline.getSnapshot().getText(DataPipeline.BATTERY));
+    }
+
+    @Test
+    public void timeZoneSurvivesPublishedData() {
+        DataPipeline pipeline = new DataPipeline(mManual, mClock);
+        pipeline.setSource(DataPipeline.STEPS, new CountingSource(), 0);
+        pipeline.start(POLL);
+        TimeZone zone = TimeZone.getTimeZone("Asia/Kathmandu");
+        pipeline.setTimeZone(zone);
+        mManual.poll();
+        assertSame(zone, pipeline.getSnapshot().getTimeZone());
+        assertText(pipeline, DataPipeline.STEPS, "1");
+    }
+
+    @Test(timeout = 10000)
+    public void slowSourceDoesNotBlockTheFrame() throws Exception {
+        DataPipeline pipeline = new DataPipeline(mThread, mClock);
+        BlockingSource source = new BlockingSource();
+        pipeline.setSource(DataPipeline.NEXT_EVENT, source, 0);
+        pipeline.start(POLL);
+        source.mEntered.await();
+
+        // The read is stuck on the executor; the frame still gets the last snapshot at once.
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertSame(DataSnapshot.EMPTY, pipeline.getSnapshot());
+        }
+        TimeZone zone = TimeZone.getTimeZone("Europe/London");
+        pipeline.setTimeZone(zone);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        source.mRelease.countDown();
+        while (pipeline.getSnapshot().getText(DataPipeline.NEXT_EVENT) == null) {
+            Thread.sleep(1);
+        }
+        assertText(pipeline, DataPipeline.NEXT_EVENT, "12:00 Lunch");
+        assertSame(zone, pipeline.getSnapshot().getTimeZone());
+        pipeline.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void publishedSnapshotsAreVisibleToTheRenderThread() throws Exception {
+        DataPipeline pipeline = new DataPipeline(mThread, new Clock() {
+            @Override
+            public long uptimeMillis() {
+                return System.nanoTime() / 1000000;
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        });
+        CountingSource source = new CountingSource();
+        pipeline.setSource(DataPipeline.STEPS, source, 0);
+        pipeline.setSource(DataPipeline.BATTERY, new FixedSource("50%"), 0);
+        pipeline.start(1);
+
+        // Spin without any synchronization of our own: only the pipeline's publication can
+        // make the reads on the executor visible here.
+        int seen = 0;
+        while (seen < 100) {
+            DataSnapshot snapshot = pipeline.getSnapshot();
+            char[] steps = snapshot.getText(DataPipeline.STEPS);
+            if (steps != null) {
+                int value = Integer.parseInt(new String(steps));
+                assertTrue(value >= seen);
+                assertArrayEquals("50%".toCharArray(), snapshot.getText(DataPipeline.BATTERY));
+                seen = value;
+            }
+        }
+        pipeline.stop();
+    }
+
+    private static void assertText(DataPipeline pipeline, int slot, String expected) {
+        assertEquals(expected, new String(pipeline.getSnapshot().getText(slot)));
+    }
+
+    /** Returns 1, 2, 3 and so on. */
+    private static final class CountingSource implements DataPipeline.Source {
+        volatile int mReads;
+
+        @Override
+        public String read() {
+            return Integer.toString(++mReads);
+        }
+    }
+
+    private static final class FixedSource implements DataPipeline.Source {
+        String mValue;
+        boolean mFail;
+
+        FixedSource(String value) {
+            mValue = value;
+        }
+
+        @Override
+        public String read() throws Exception {
+            if (mFail) {
+                throw new Exception("unavailable");
+            }
+            return mValue;
+        }
+    }
+
+    /** Blocks its first read until released. */
+    private static final class BlockingSource implements DataPipeline.Source {
+        final CountDownLatch mEntered = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+
+        @Override
+        public String read() throws InterruptedException {
+            mEntered.countDown();
+            mRelease.await();
+            return "12:00 Lunch";
+        }
+    }
+
+    /** Runs the pipeline's poll only when {@link #poll()} is called, on the calling thread. */
+    private static final class ManualExecutor extends ScheduledThreadPoolExecutor {
+        private Runnable mPoll;
+
+        ManualExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+                long delay, TimeUnit unit) {
+            mPoll = command;
+            // A future the pipeline can cancel, for a run that never comes during a test.
+            return schedule(command, 1, TimeUnit.DAYS);
+        }
+
+        void poll() {
+            mPoll.run();
+        }
+    }
+}
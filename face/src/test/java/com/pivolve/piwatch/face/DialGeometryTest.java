@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** Checks that the dial lines up with the hands and markers of {@link FaceLayout}. */
+public class DialGeometryTest {
+    private static final float EPSILON = 0.01f;
+
+    @Test
+    public void dialFollowsTheLayoutRadiusOnEverySurface() {
+        int[][] surfaces = {{320, 320}, {280, 280}, {400, 320}, {320, 400}, {454, 454}};
+        for (int[] surface : surfaces) {
+            FaceLayout layout = FaceLayout.obtain(null, surface[0], surface[1], 0, 1);
+            DialGeometry dial = layout.dial;
+            String at = surface[0] + "x" + surface[1];
+
+            float[] cardinals = dial.getCardinalTicks();
+            for (int i = 0; i < cardinals.length; i += 4) {
+                assertDistance(at, layout, layout.markerOuter, cardinals, i);
+                assertDistance(at, layout, layout.markerLongInner, cardinals, i + 2);
+            }
+            float[] hours = dial.getHourTicks();
+            for (int i = 0; i < hours.length; i += 4) {
+                assertDistance(at, layout, layout.radius, hours, i);
+            }
+            float[] dots = dial.getMinuteDots();
+            for (int i = 0; i < dots.length; i += 2) {
+                assertDistance(at, layout, layout.markerDot, dots, i);
+            }
+        }
+    }
+
+    @Test
+    public void bottomMarkStaysAboveTheChin() {
+        FaceLayout layout = FaceLayout.obtain(null, 320, 320, 30, 1);
+        float[] cardinals = layout.dial.getCardinalTicks();
+        // The 6 o'clock mark is the third segment.
+        assertTrue(cardinals[9] <= 320 - 30);
+        assertTrue(cardinals[11] < cardinals[9]);
+        assertEquals(cardinals[9] - cardinals[11],
+                layout.markerOuter - layout.markerLongInner, EPSILON);
+    }
+
+    @Test
+    public void sameSurfaceReusesTheGeometry() {
+        DialGeometry dial = DialGeometry.obtain(null, 400, 320, 0);
+        assertTrue(dial == DialGeometry.obtain(dial, 400, 320, 0));
+        assertTrue(dial != DialGeometry.obtain(dial, 320, 400, 0));
+    }
+
+    private static void assertDistance(String at, FaceLayout layout, float expected,
+            float[] points, int index) {
+        float dx = points[index] - layout.centerX;
+        float dy = points[index + 1] - layout.centerY;
+        assertEquals(at + " point " + index / 2, expected, (float) Math.hypot(dx, dy), EPSILON);
+    }
+}
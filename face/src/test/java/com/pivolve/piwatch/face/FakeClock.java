@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+/** A {@link Clock} that only moves when told to. */
+final class FakeClock implements Clock {
+    private long mUptimeMillis;
+    private long mWallMillis;
+
+    FakeClock(long uptimeMillis, long wallMillis) {
+        mUptimeMillis = uptimeMillis;
+        mWallMillis = wallMillis;
+    }
+
+    /** Moves both clocks forward by {@code millis}. */
+    void advance(long millis) {
+        mUptimeMillis += millis;
+        mWallMillis += millis;
+    }
+
+    /** Moves the wall clock alone, as when it is set or drifts against the monotonic clock. */
+    void shiftWall(long millis) {
+        mWallMillis += millis;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return mUptimeMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mWallMillis;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Fails if a steady-state frame allocates anything. Frames are drawn a frame interval apart,
+ * so the readouts change every minute and the date every day along the way, into a target
+ * that does nothing.
+ *
+ * <p>While the JIT is still compiling, {@code TimeZone.getOffset} can allocate a few hundred
+ * bytes once. So the frames are measured in several rounds and the quietest counts; a frame
+ * that allocates allocates in every round.
+ */
+public class FrameAllocationTest {
+    private static final int FRAMES = 5000;
+    private static final int ROUNDS = 4;
+    private static final long TIME_MILLIS = 1435708799000L;
+    private static final char[] QUOTE = ("Not everything that counts can be counted, and not "
+            + "everything that can be counted counts.").toCharArray();
+
+    private final FaceRenderer mRenderer = new FaceRenderer();
+    private final AmbientRenderer mAmbientRenderer = new AmbientRenderer();
+    private final FaceState mState = new FaceState();
+    private final DrawTarget mTarget = new NullDrawTarget();
+    private final float[] mBounds = new float[4];
+
+    private com.sun.management.ThreadMXBean mAllocations;
+    private long mTime;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        mAllocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(mAllocations.isThreadAllocatedMemorySupported()
+                && mAllocations.isThreadAllocatedMemoryEnabled());
+
+        FaceLayout layout = FaceLayout.obtain(null, 320, 290, 30, 1);
+        mRenderer.setLayout(layout);
+        mAmbientRenderer.setLayout(layout);
+        mState.time.setZone(TimeZone.getTimeZone("America/New_York"));
+        mState.quote = QuoteLayout.create(QUOTE, new TextMeasurer() {
+            @Override
+            public float measureText(char[] text, int index, int count) {
+                return count * 8;
+            }
+        }, layout.quoteWidth, 3, layout.quoteLineHeight);
+        mState.data = DataSnapshot.EMPTY.withTexts(new char[][] {
+                "80%".toCharArray(), "1234".toCharArray(), "12:00 Lunch".toCharArray(),
+                "21C Clear".toCharArray()});
+        mTime = TIME_MILLIS;
+    }
+
+    @Test
+    public void interactiveFramesDoNotAllocate() {
+        mState.ambient = false;
+        assertEquals(0, allocatedBytes(1000, new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.drawFrame(mTarget, mState);
+            }
+        }));
+    }
+
+    @Test
+    public void partialFramesDoNotAllocate() {
+        mState.ambient = false;
+        assertEquals(0, allocatedBytes(1000, new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.getSecondHandBounds(mState, 4, mBounds);
+                mRenderer.drawMovingParts(mTarget, mState);
+            }
+        }));
+    }
+
+    @Test
+    public void ambientFramesDoNotAllocate() {
+        mState.ambient = true;
+        assertEquals(0, allocatedBytes(60 * 1000, new Runnable() {
+            @Override
+            public void run() {
+                mAmbientRenderer.draw(mTarget, mState.time);
+            }
+        }));
+    }
+
+    @Test
+    public void burnInProtectedFramesDoNotAllocate() {
+        mState.ambient = true;
+        mAmbientRenderer.setBurnInProtection(true);
+        assertEquals(0, allocatedBytes(60 * 1000, new Runnable() {
+            @Override
+            public void run() {
+                mAmbientRenderer.draw(mTarget, mState.time);
+            }
+        }));
+    }
+
+    /**
+     * Draws {@link #FRAMES} frames to warm up, so class loading and lazily built tables aren't
+     * counted, then {@link #ROUNDS} times as many again. Returns the least any round allocated.
+     */
+    private long allocatedBytes(long frameMillis, Runnable frame) {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < FRAMES; i++) {
+            mState.time.set(mTime += frameMillis);
+            frame.run();
+        }
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = mAllocations.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < FRAMES; i++) {
+                mState.time.set(mTime += frameMillis);
+                frame.run();
+            }
+            least = Math.min(least, mAllocations.getThreadAllocatedBytes(threadId) - before);
+        }
+        return least;
+    }
+
+    private static final class NullDrawTarget implements DrawTarget {
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, int ink) {
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, int ink) {
+        }
+
+        @Override
+        public void drawLines(float[] pts, int ink) {
+        }
+
+        @Override
+        public void drawPoints(float[] pts, int ink) {
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, int ink) {
+        }
+
+        @Override
+        public void drawText(char[] text, int index, int count, float x, float y, int ink) {
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FrameRatePolicyTest {
+    private static final float BUDGET = 0.1f;
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long VSYNC = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private FrameRatePolicy mPolicy;
+    /** The vsync the next frame is scheduled for. */
+    private long mTargetNanos;
+
+    @Before
+    public void setUp() {
+        mPolicy = new FrameRatePolicy(BUDGET);
+        mTargetNanos = 1000 * MS;
+    }
+
+    @Test
+    public void budgetPicksTheFastestRateTheCostFits() {
+        // A tenth of a second per second: 60 frames of 1 ms fit, 60 of 3 ms don't.
+        assertEquals(60, rateForCost(1 * MS));
+        assertEquals(30, rateForCost(3 * MS));
+        assertEquals(15, rateForCost(5 * MS));
+        assertEquals(1, rateForCost(10 * MS));
+    }
+
+    @Test
+    public void nothingIsDrawnWhileHiddenOrAmbient() {
+        draw(60, MS, 0);
+        assertEquals(0, mPolicy.getFrameRate(false, false));
+        assertEquals(0, mPolicy.getFrameRate(true, true));
+    }
+
+    @Test
+    public void skippedVsyncsBackOffOneRate() {
+        draw(60, MS, 0);
+        draw(60, MS, VSYNC);
+        draw(60, MS, VSYNC);
+        assertEquals(60, rate());
+
+        draw(60, MS, VSYNC);
+        assertEquals(30, rate());
+    }
+
+    @Test
+    public void framesFinishingAfterTheNextVsyncBackOffOneRate() {
+        // Drawn on their target vsync, but the main thread was busy before drawing started.
+        for (int i = 0; i < 3; i++) {
+            long start = mTargetNanos + VSYNC - MS / 2;
+            mPolicy.onFrameDrawn(mTargetNanos, mTargetNanos, start, start + MS, 60);
+            mTargetNanos += 2 * VSYNC;
+        }
+        assertEquals(30, rate());
+    }
+
+    @Test
+    public void anOnTimeFrameRestartsTheLateCount() {
+        draw(60, MS, VSYNC);
+        draw(60, MS, VSYNC);
+        draw(60, MS, 0);
+        draw(60, MS, VSYNC);
+        draw(60, MS, VSYNC);
+        assertEquals(60, rate());
+    }
+
+    @Test
+    public void smallVsyncJitterIsOnTime() {
+        for (int i = 0; i < 10; i++) {
+            draw(60, MS, 2 * MS);
+        }
+        assertEquals(60, rate());
+    }
+
+    @Test
+    public void backsOffToOneFrameASecondAtMost() {
+        for (int i = 0; i < 30; i++) {
+            draw(rate(), MS, VSYNC);
+        }
+        assertEquals(1, rate());
+    }
+
+    @Test
+    public void recoversAfterFiveSecondsOnTime() {
+        for (int i = 0; i < 3; i++) {
+            draw(60, MS, VSYNC);
+        }
+        assertEquals(30, rate());
+
+        for (int i = 0; i < 5 * 30 - 1; i++) {
+            draw(30, MS, 0);
+        }
+        assertEquals(30, rate());
+        draw(30, MS, 0);
+        assertEquals(60, rate());
+    }
+
+    @Test
+    public void zeroBudgetDrawsOnceASecond() {
+        mPolicy.setPowerBudget(0);
+        draw(60, 1, 0);
+        assertEquals(1, rate());
+        assertEquals(0, mPolicy.getFrameRate(true, true));
+
+        mPolicy.setPowerBudget(BUDGET);
+        assertEquals(60, rate());
+    }
+
+    @Test
+    public void resetForgetsCostAndDeadlineMisses() {
+        for (int i = 0; i < 3; i++) {
+            draw(60, 4 * MS, VSYNC);
+        }
+        assertEquals(15, rate());
+
+        mPolicy.reset();
+        assertEquals(60, rate());
+        draw(60, MS, 0);
+        assertEquals(60, rate());
+    }
+
+    /** Returns the rate a fresh policy picks after an on-time frame of the given cost. */
+    private int rateForCost(long costNanos) {
+        mPolicy.reset();
+        draw(60, costNanos, 0);
+        return rate();
+    }
+
+    private int rate() {
+        return mPolicy.getFrameRate(true, false);
+    }
+
+    /**
+     * Draws a frame at the given rate, {@code skippedNanos} after the vsync it was scheduled
+     * for, and schedules the next one.
+     */
+    private void draw(int frameRate, long costNanos, long skippedNanos) {
+        long frameTime = mTargetNanos + skippedNanos;
+        mPolicy.onFrameDrawn(mTargetNanos, frameTime, frameTime, frameTime + costNanos,
+                frameRate);
+        mTargetNanos = frameTime + TimeUnit.SECONDS.toNanos(1) / frameRate;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class FrameStatsTest {
+    private static final long US = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void percentilesOfKnownSamples() {
+        FrameStats stats = new FrameStats(true);
+        // Shuffled, so the summary can't rely on the samples arriving in order.
+        for (int i = 0; i < 100; i++) {
+            stats.recordRender(((i * 37) % 100 + 1) * US);
+        }
+        assertLine(stats, "render: n=100 p50=50us p95=95us p99=99us max=100us");
+    }
+
+    @Test
+    public void percentileOfFewSamples() {
+        long[] one = {7};
+        assertEquals(7, FrameStats.percentile(one, 50));
+        assertEquals(7, FrameStats.percentile(one, 99));
+        long[] two = {3, 9};
+        assertEquals(3, FrameStats.percentile(two, 50));
+        assertEquals(9, FrameStats.percentile(two, 95));
+    }
+
+    @Test
+    public void ringKeepsTheLatestSamplesAfterWrapping() {
+        FrameStats stats = new FrameStats(true);
+        int total = FrameStats.CAPACITY + 88;
+        for (int i = 1; i <= total; i++) {
+            stats.recordRender(i * US);
+        }
+        // The count covers every sample, the summary the last 512: 89us to 600us.
+        assertLine(stats, "render: n=600 p50=344us p95=575us p99=595us max=600us");
+    }
+
+    @Test
+    public void lateTicksCountWholeSkippedIntervals() {
+        FrameStats stats = new FrameStats(true);
+        stats.recordTickLatency(3 * US, INTERVAL);
+        stats.recordTickLatency(INTERVAL - 1, INTERVAL);
+        assertLine(stats, "skipped ticks: 0");
+
+        stats.recordTickLatency(INTERVAL, INTERVAL);
+        stats.recordTickLatency(INTERVAL * 5 / 2, INTERVAL);
+        assertLine(stats, "skipped ticks: 3");
+        assertLine(stats, "tick latency: n=4 ");
+    }
+
+    @Test
+    public void modeChangesDecodeTimeAndMode() {
+        FrameStats stats = new FrameStats(true);
+        stats.recordModeChange(1000, true);
+        stats.recordModeChange(4000, false);
+        stats.recordModeChange(4500, true);
+        String dump = dump(stats, 5000);
+        assertTrue(dump, dump.contains("  mode changes: 3\n"
+                + "    -4000ms ambient\n"
+                + "    -1000ms interactive\n"
+                + "    -500ms ambient\n"));
+    }
+
+    @Test
+    public void disabledStatsRecordNothing() {
+        FrameStats stats = new FrameStats(false);
+        stats.recordRender(5 * US);
+        stats.recordTickLatency(INTERVAL * 3, INTERVAL);
+        stats.recordModeChange(1000, true);
+        assertLine(stats, "render: n=0\n");
+        assertLine(stats, "tick latency: n=0\n");
+        assertLine(stats, "skipped ticks: 0\n");
+        assertLine(stats, "mode changes: 0\n");
+
+        stats.setEnabled(true);
+        stats.recordRender(5 * US);
+        assertLine(stats, "render: n=1 ");
+    }
+
+    @Test
+    public void clearDiscardsSamples() {
+        FrameStats stats = new FrameStats(true);
+        stats.recordRender(5 * US);
+        stats.recordTickLatency(INTERVAL * 2, INTERVAL);
+        stats.clear();
+        assertLine(stats, "render: n=0\n");
+        assertLine(stats, "skipped ticks: 0\n");
+    }
+
+    @Test
+    public void overlappingStartupsKeepTheirOwnMilestones() {
+        FrameStats stats = new FrameStats(false);
+        assertLine(stats, "last startup: first frame=- resources=- full frame=-");
+
+        FrameStats.Startup first = stats.beginStartup();
+        first.record(FrameStats.STARTUP_FIRST_FRAME, 10 * US);
+        FrameStats.Startup second = stats.beginStartup();
+        second.record(FrameStats.STARTUP_FIRST_FRAME, 20 * US);
+        first.record(FrameStats.STARTUP_RESOURCES_LOADED, 30 * US);
+        second.record(FrameStats.STARTUP_FIRST_FRAME, 99 * US);
+        second.record(FrameStats.STARTUP_RESOURCES_LOADED, 40 * US);
+
+        // Startups are recorded while disabled; only the first frame of each counts.
+        assertLine(stats, "last startup: first frame=20us resources=40us full frame=-");
+        assertLine(stats, "time to first frame: n=2 ");
+    }
+
+    private static void assertLine(FrameStats stats, String expected) {
+        String dump = dump(stats, 0);
+        assertTrue(dump, dump.contains(expected));
+    }
+
+    private static String dump(FrameStats stats, long nowMillis) {
+        StringWriter writer = new StringWriter();
+        PrintWriter out = new PrintWriter(writer);
+        stats.dump(out, "", nowMillis);
+        out.flush();
+        return writer.toString().replace(System.getProperty("line.separator"), "\n");
+    }
+}
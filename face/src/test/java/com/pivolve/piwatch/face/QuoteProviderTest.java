@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuoteProviderTest {
+    private static final int MAX_LINES = 3;
+
+    private final TimeState mTime = new TimeState(TimeZone.getTimeZone("UTC"));
+    private QueueExecutor mLoader;
+    private QueueExecutor mMain;
+    private CountingMeasurer mMeasurer;
+    private int mChanges;
+    private QuoteProvider mQuotes;
+
+    @Before
+    public void setUp() throws Exception {
+        QuoteLibrary library = new QuoteLibrary(new BytesSource("zero\none\ntwo\nthree\n"));
+        library.buildIndex();
+        mLoader = new QueueExecutor();
+        mMain = new QueueExecutor();
+        mMeasurer = new CountingMeasurer();
+        mQuotes = new QuoteProvider(library, QuoteRotationPolicy.SEQUENTIAL, mLoader, mMain,
+                new QuoteProvider.Listener() {
+                    @Override
+                    public void onQuoteChanged() {
+                        mChanges++;
+                    }
+                });
+    }
+
+    @Test
+    public void laysOutOnTheLoaderOnly() {
+        mQuotes.setLayout(mMeasurer, 100, MAX_LINES, 10);
+        mQuotes.prepareNext(mTime);
+        assertNull(mQuotes.getCurrent());
+        assertEquals(0, mMeasurer.mCalls);
+
+        mLoader.runAll();
+        assertNull(mQuotes.getCurrent());
+        assertEquals(0, mChanges);
+
+        mMain.runAll();
+        assertEquals("zero", firstLine(mQuotes.getCurrent()));
+        assertEquals(1, mChanges);
+    }
+
+    @Test
+    public void rotationShowsThePreparedQuoteAtOnce() {
+        mQuotes.setLayout(mMeasurer, 100, MAX_LINES, 10);
+        mQuotes.prepareNext(mTime);
+        drain();
+        int calls = mMeasurer.mCalls;
+
+        mQuotes.rotate(mTime);
+        assertEquals("one", firstLine(mQuotes.getCurrent()));
+        assertEquals(calls, mMeasurer.mCalls);
+        assertEquals(1, mChanges);
+
+        // The one after it is laid out in the background again.
+        drain();
+        mQuotes.rotate(mTime);
+        assertEquals("two", firstLine(mQuotes.getCurrent()));
+        assertEquals(1, mChanges);
+    }
+
+    @Test
+    public void rotationBeforeTheQuoteIsReadyKeepsTheOldOneUntilItIs() {
+        mQuotes.setLayout(mMeasurer, 100, MAX_LINES, 10);
+        drain();
+        mQuotes.prepareNext(mTime);
+
+        mQuotes.rotate(mTime);
+        assertEquals("zero", firstLine(mQuotes.getCurrent()));
+
+        drain();
+        assertEquals("one", firstLine(mQuotes.getCurrent()));
+        assertEquals(2, mChanges);
+    }
+
+    @Test
+    public void rotationToAnUnpreparedQuoteLaysItOut() {
+        mQuotes.setLayout(mMeasurer, 100, MAX_LINES, 10);
+        mQuotes.prepareNext(mTime);
+        drain();
+
+        mQuotes.setPolicy(new QuoteRotationPolicy() {
+            @Override
+            public int nextQuote(int current, int count, TimeState time) {
+                return 3;
+            }
+        });
+        mQuotes.rotate(mTime);
+        assertEquals("zero", firstLine(mQuotes.getCurrent()));
+        drain();
+        assertEquals("three", firstLine(mQuotes.getCurrent()));
+    }
+
+    @Test
+    public void layoutsForOldSettingsAreDropped() {
+        mQuotes.setLayout(mMeasurer, 100, MAX_LINES, 10);
+        mQuotes.prepareNext(mTime);
+        mQuotes.setLayout(mMeasurer, 100, MAX_LINES, 20);
+        mQuotes.prepareNext(mTime);
+        drain();
+
+        assertEquals(20, mQuotes.getCurrent().getLineHeight(), 0);
+        assertEquals(1, mChanges);
+        mQuotes.rotate(mTime);
+        assertEquals(20, mQuotes.getCurrent().getLineHeight(), 0);
+    }
+
+    private void drain() {
+        while (!mLoader.isEmpty() || !mMain.isEmpty()) {
+            mLoader.runAll();
+            mMain.runAll();
+        }
+    }
+
+    private static String firstLine(QuoteLayout layout) {
+        int start = layout.getLineStart(0);
+        return new String(layout.getText(), start, layout.getLineEnd(0) - start);
+    }
+
+    /** Runs tasks only when told to. */
+    private static final class QueueExecutor implements Executor {
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            mTasks.add(task);
+        }
+
+        boolean isEmpty() {
+            return mTasks.isEmpty();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /** One unit per character. */
+    private static final class CountingMeasurer implements TextMeasurer {
+        int mCalls;
+
+        @Override
+        public float measureText(char[] text, int index, int count) {
+            mCalls++;
+            return count;
+        }
+    }
+
+    private static final class BytesSource implements QuoteSource {
+        private final byte[] mBytes;
+
+        BytesSource(String text) {
+            mBytes = text.getBytes(Charset.forName("UTF-8"));
+        }
+
+        @Override
+        public long length() {
+            return mBytes.length;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) {
+            if (position >= mBytes.length) {
+                return -1;
+            }
+            int count = (int) Math.min(length, mBytes.length - position);
+            System.arraycopy(mBytes, (int) position, buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TickSchedulerTest {
+    private static final long INTERVAL = 1000;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private FakeClock mClock;
+    private FakeHost mHost;
+    private TickScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        // Uptime and wall time deliberately out of phase with each other.
+        mClock = new FakeClock(5123, 1400000000300L);
+        mHost = new FakeHost();
+        mScheduler = new TickScheduler(mClock, mHost, INTERVAL);
+    }
+
+    @Test
+    public void firstTickIsImmediateAndLaterTicksLandOnBoundaries() {
+        mScheduler.start();
+        assertEquals(mClock.uptimeMillis(), mHost.mAlarm);
+
+        fire(0);
+        assertEquals(1, mHost.mTicks.size());
+        assertEquals(-1L, (long) mHost.mTicks.get(0));
+        assertEquals(0, wallAtAlarm() % INTERVAL);
+
+        for (int i = 0; i < 10; i++) {
+            fire(0);
+            assertEquals(0, mClock.currentTimeMillis() % INTERVAL);
+        }
+        assertEquals(11, mHost.mTicks.size());
+        assertEquals(0L, (long) mHost.mTicks.get(10));
+    }
+
+    @Test
+    public void driftBetweenClocksDoesNotAccumulate() {
+        mScheduler.start();
+        fire(0);
+        for (int i = 0; i < 100; i++) {
+            // The wall clock gains 7 ms on the monotonic clock every second.
+            mClock.shiftWall(7);
+            fire(0);
+            long phase = mClock.currentTimeMillis() % INTERVAL;
+            assertTrue("tick " + i + " is " + phase + " ms off", phase <= 7);
+            assertEquals(0, wallAtAlarm() % INTERVAL);
+        }
+        assertEquals(101, mHost.mTicks.size());
+    }
+
+    @Test
+    public void wallClockSetBackReaimsAndDrawsAgain() {
+        mScheduler.start();
+        fire(0);
+        fire(0);
+        int ticks = mHost.mTicks.size();
+
+        mClock.shiftWall(-3600 * 1000 - 250);
+        mScheduler.onWallClockChanged();
+        assertEquals(1, mHost.mCancels);
+        assertEquals(mClock.uptimeMillis(), mHost.mAlarm);
+
+        fire(0);
+        assertEquals(ticks + 1, mHost.mTicks.size());
+        assertEquals(-1L, (long) mHost.mTicks.get(ticks));
+        assertEquals(0, wallAtAlarm() % INTERVAL);
+    }
+
+    @Test
+    public void wallClockSetForwardReaims() {
+        mScheduler.start();
+        fire(0);
+        long before = mHost.mAlarm;
+
+        mClock.shiftWall(90 * 1000 + 400);
+        mScheduler.onWallClockChanged();
+        fire(0);
+        assertEquals(2, mHost.mTicks.size());
+        assertEquals(0, wallAtAlarm() % INTERVAL);
+        assertTrue(mHost.mAlarm != before);
+    }
+
+    @Test
+    public void wallClockChangeWhileStoppedSchedulesNothing() {
+        mScheduler.onWallClockChanged();
+        assertEquals(NONE, mHost.mAlarm);
+        assertEquals(0, mHost.mCancels);
+    }
+
+    @Test
+    public void lateAlarmTicksOnceAndCatchesUp() {
+        mScheduler.start();
+        fire(0);
+
+        fire(2500);
+        assertEquals(2, mHost.mTicks.size());
+        assertEquals(2500L, (long) mHost.mTicks.get(1));
+        // Aimed at the next boundary, not at the ones that were missed.
+        assertTrue(mHost.mAlarm > mClock.uptimeMillis());
+        assertTrue(mHost.mAlarm - mClock.uptimeMillis() <= INTERVAL);
+        assertEquals(0, wallAtAlarm() % INTERVAL);
+    }
+
+    @Test
+    public void repeatedAlarmsInOneIntervalTickOnce() {
+        mScheduler.start();
+        fire(0);
+        fire(0);
+        int ticks = mHost.mTicks.size();
+
+        mClock.advance(100);
+        mScheduler.onAlarm();
+        mClock.advance(100);
+        mScheduler.onAlarm();
+        assertEquals(ticks, mHost.mTicks.size());
+    }
+
+    @Test
+    public void frameDrawnElsewhereSuppressesAlarmInSameInterval() {
+        mScheduler.start();
+        fire(0);
+
+        mClock.advance(mHost.mAlarm - mClock.uptimeMillis() + 10);
+        mScheduler.onFrameDrawn(mClock.currentTimeMillis());
+        mScheduler.onAlarm();
+        assertEquals(1, mHost.mTicks.size());
+
+        fire(0);
+        assertEquals(2, mHost.mTicks.size());
+    }
+
+    @Test
+    public void startIsIdempotent() {
+        mScheduler.start();
+        long alarm = mHost.mAlarm;
+        mClock.advance(200);
+        mScheduler.start();
+        assertEquals(1, mHost.mSchedules);
+        assertEquals(alarm, mHost.mAlarm);
+        assertTrue(mScheduler.isRunning());
+    }
+
+    @Test
+    public void ambientHandoffInSameSecondDoesNotDrawTwice() {
+        mScheduler.start();
+        fire(0);
+        fire(0);
+
+        // Entering ambient: ticking stops and a stale alarm does nothing.
+        mClock.advance(300);
+        mScheduler.stop();
+        assertEquals(1, mHost.mCancels);
+        assertTrue(!mScheduler.isRunning());
+        int ticks = mHost.mTicks.size();
+        mScheduler.onAlarm();
+        assertEquals(ticks, mHost.mTicks.size());
+
+        // The ambient frame, then back to interactive within the same second.
+        mScheduler.onFrameDrawn(mClock.currentTimeMillis());
+        mClock.advance(200);
+        mScheduler.start();
+        fire(0);
+        assertEquals(ticks, mHost.mTicks.size());
+        assertEquals(0, wallAtAlarm() % INTERVAL);
+
+        fire(0);
+        assertEquals(ticks + 1, mHost.mTicks.size());
+        assertEquals(0L, (long) mHost.mTicks.get(ticks));
+    }
+
+    @Test
+    public void ambientHandoffInLaterSecondDrawsAtOnce() {
+        mScheduler.start();
+        fire(0);
+        mScheduler.stop();
+        mScheduler.onFrameDrawn(mClock.currentTimeMillis());
+
+        // A minute in ambient.
+        mClock.advance(60 * 1000 + 450);
+        mScheduler.start();
+        fire(0);
+        assertEquals(2, mHost.mTicks.size());
+        assertEquals(-1L, (long) mHost.mTicks.get(1));
+        assertEquals(0, wallAtAlarm() % INTERVAL);
+    }
+
+    /** Moves the clock to the pending alarm, plus {@code lateMillis}, and fires it. */
+    private void fire(long lateMillis) {
+        assertTrue("no alarm pending", mHost.mAlarm != NONE);
+        mClock.advance(Math.max(0, mHost.mAlarm - mClock.uptimeMillis()) + lateMillis);
+        mScheduler.onAlarm();
+    }
+
+    /** Wall time at which the pending alarm will fire, if the clocks don't move apart. */
+    private long wallAtAlarm() {
+        return mHost.mAlarm + mClock.currentTimeMillis() - mClock.uptimeMillis();
+    }
+
+    private static final class FakeHost implements TickScheduler.Host {
+        long mAlarm = NONE;
+        int mSchedules;
+        int mCancels;
+        final List<Long> mTicks = new ArrayList<Long>();
+
+        @Override
+        public void scheduleAlarm(long uptimeMillis) {
+            mAlarm = uptimeMillis;
+            mSchedules++;
+        }
+
+        @Override
+        public void cancelAlarm() {
+            mAlarm = NONE;
+            mCancels++;
+        }
+
+        @Override
+        public void onTick(long latencyMillis) {
+            mTicks.add(latencyMillis);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pivolve.piwatch.face;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/** Checks {@link TimeState} against {@code java.time}. */
+public class TimeStateTest {
+    private static final String[] ZONES = {
+            "UTC",
+            "America/New_York",      // DST, behind UTC
+            "Europe/London",         // DST at UTC+0
+            "Australia/Sydney",      // DST in the southern summer
+            "America/Sao_Paulo",     // DST rules that changed and then stopped
+            "Asia/Kolkata",          // +5:30
+            "Asia/Kathmandu",        // +5:45
+            "Australia/Eucla",       // +8:45
+            "Pacific/Chatham",       // +12:45 with DST
+            "America/St_Johns",      // -3:30 with DST
+            "Pacific/Kiritimati",    // +14
+            "Pacific/Apia",          // skipped a whole day in 2011
+    };
+
+    private static final long MIN_MILLIS = instant(1900, 1, 1);
+    private static final long MAX_MILLIS = instant(2100, 1, 1);
+
+    @Test
+    public void matchesJavaTimeAtRandomInstants() {
+        Random random = new Random(42);
+        for (String id : ZONES) {
+            TimeState state = new TimeState(TimeZone.getTimeZone(id));
+            for (int i = 0; i < 20000; i++) {
+                long millis = MIN_MILLIS
+                        + (long) (random.nextDouble() * (MAX_MILLIS - MIN_MILLIS));
+                check(state, id, millis);
+            }
+        }
+    }
+
+    @Test
+    public void matchesJavaTimeBeforeAndAroundTheEpoch() {
+        long[] instants = {
+                -1, 0, 1, -999, -1000, -1001, -59999, -60000, -60001,
+                instant(1969, 12, 31), instant(1968, 2, 29), instant(1945, 5, 8),
+                instant(1918, 3, 31), instant(1900, 3, 1) - 1,
+        };
+        for (String id : ZONES) {
+            TimeState state = new TimeState(TimeZone.getTimeZone(id));
+            for (long millis : instants) {
+                check(state, id, millis);
+                check(state, id, millis + 59999);
+            }
+        }
+    }
+
+    /**
+     * Before 1900 {@code java.util.TimeZone} and {@code java.time} disagree about local mean
+     * time, so the calendar arithmetic is checked there in fixed offset zones.
+     */
+    @Test
+    public void matchesJavaTimeCenturiesAgo() {
+        String[] offsets = {"+00:00", "-03:30", "+05:45", "+12:45"};
+        long[] instants = {
+                instant(1600, 2, 29), instant(1600, 3, 1) - 1, instant(1700, 2, 28),
+                instant(1700, 3, 1), instant(1800, 12, 31), instant(1, 1, 1),
+        };
+        for (String offset : offsets) {
+            String id = "GMT" + offset;
+            TimeState state = new TimeState(TimeZone.getTimeZone(id));
+            for (long millis : instants) {
+                check(state, id, millis);
+                check(state, id, millis - 1);
+            }
+        }
+    }
+
+    @Test
+    public void matchesJavaTimeAcrossZoneTransitions() {
+        for (String id : ZONES) {
+            ZoneRules rules = ZoneId.of(id).getRules();
+            TimeState state = new TimeState(TimeZone.getTimeZone(id));
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(
+                    instant(1960, 1, 1)));
+            while (transition != null
+                    && transition.getInstant().toEpochMilli() < instant(2040, 1, 1)) {
+                long at = transition.getInstant().toEpochMilli();
+                // Step through in the order frames would, so the cached minute is exercised.
+                for (long millis = at - 2 * 60000; millis < at + 2 * 60000; millis += 250) {
+                    check(state, id, millis);
+                }
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    public void reportsNewMinuteOnlyWhenTheMinuteChanges() {
+        TimeState state = new TimeState(TimeZone.getTimeZone("Asia/Kathmandu"));
+        long start = instant(2015, 6, 30) + 59000;
+        assertEquals(true, state.set(start));
+        assertEquals(false, state.set(start + 999));
+        assertEquals(true, state.set(start + 1000));
+        assertEquals(false, state.set(start + 60999));
+        assertEquals(true, state.set(start + 61000));
+        assertEquals(true, state.set(start));
+
+        state.setZone(TimeZone.getTimeZone("UTC"));
+        assertEquals(true, state.set(start));
+    }
+
+    @Test
+    public void followsZoneChanges() {
+        TimeState state = new TimeState(TimeZone.getTimeZone("UTC"));
+        long millis = instant(2015, 12, 31) + 23 * 3600000L + 30 * 60000L;
+        check(state, "UTC", millis);
+        for (String id : ZONES) {
+            state.setZone(TimeZone.getTimeZone(id));
+            check(state, id, millis);
+        }
+    }
+
+    private static void check(TimeState state, String id, long millis) {
+        state.set(millis);
+        ZonedDateTime expected = Instant.ofEpochMilli(millis).atZone(ZoneId.of(id));
+        String at = id + " at " + millis + " (" + expected + ")";
+        assertEquals(at, expected.getYear(), state.getYear());
+        assertEquals(at, expected.getMonthValue(), state.getMonth());
+        assertEquals(at, expected.getDayOfMonth(), state.getMonthDay());
+        assertEquals(at, expected.getHour(), state.getHour());
+        assertEquals(at, expected.getMinute(), state.getMinute());
+        assertEquals(at, expected.getSecond(), state.getSecond());
+        assertEquals(at, expected.getNano() / 1000000, state.getMillis());
+        assertEquals(at, String.format("%02d-%02d", expected.getMonthValue(),
+                expected.getDayOfMonth()), new String(state.getDateText()));
+        assertEquals(at, String.format("%02d:%02d", expected.getHour(), expected.getMinute()),
+                new String(state.getTimeText()));
+    }
+
+    /** Epoch millis of midnight UTC on the given date. */
+    private static long instant(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 0, 0).atZone(ZoneId.of("UTC")).toInstant()
+                .toEpochMilli();
+    }
+}